@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-ready of the packaged application for:
+#   default     - application.properties only
+#   fast-start  - the fast-start profile
+#   fast-cds    - the fast-start profile plus an AppCDS class-data archive
+#
+# usage: scripts/startup-benchmark.sh [runs]
+#
+# The default variant tests the SMTP connection on boot, so it needs the mail host to be reachable.
+
+set -euo pipefail
+
+RUNS=${1:-5}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK="$ROOT/target/startup-benchmark"
+MAIN=com.udemy.libraryapi.LibraryApiApplication
+
+cd "$ROOT"
+./mvnw -B -q -DskipTests package
+
+# AppCDS can only archive classes loaded from plain jars, so the fat jar is unpacked into a flat classpath
+rm -rf "$WORK" && mkdir -p "$WORK/exploded"
+(cd "$WORK/exploded" && jar -xf "$ROOT"/target/library-api-*.jar)
+jar -cf "$WORK/app.jar" -C "$WORK/exploded/BOOT-INF/classes" .
+CP="$WORK/app.jar:$(ls "$WORK"/exploded/BOOT-INF/lib/*.jar | sort | tr '\n' ':')"
+
+ready_ms() {
+  java "$@" -cp "$CP" -Dapplication.startup.exit-on-ready=true $MAIN 2>&1 \
+    | sed -n 's/.*Application ready in \([0-9]*\) ms.*/\1/p'
+}
+
+echo "Dumping AppCDS archive"
+java -Xshare:off -XX:DumpLoadedClassList="$WORK/classes.lst" -cp "$CP" \
+  -Dspring.profiles.active=fast-start -Dapplication.startup.exit-on-ready=true $MAIN > /dev/null 2>&1
+java -Xshare:dump -XX:SharedClassListFile="$WORK/classes.lst" -XX:SharedArchiveFile="$WORK/app.jsa" -cp "$CP" > /dev/null 2>&1
+
+bench() {
+  local name=$1; shift
+  local total=0
+  for _ in $(seq "$RUNS"); do
+    total=$((total + $(ready_ms "$@")))
+  done
+  printf '%-12s %6d ms (mean of %d runs)\n' "$name" $((total / RUNS)) "$RUNS"
+}
+
+bench default
+bench fast-start -Dspring.profiles.active=fast-start
+bench fast-cds -Dspring.profiles.active=fast-start -XX:SharedArchiveFile="$WORK/app.jsa"
@@ -1,8 +1,14 @@
 package com.udemy.libraryapi.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.udemy.libraryapi.api.exception.ApiErrors;
 import com.udemy.libraryapi.exception.BusinessException;
+import com.udemy.libraryapi.exception.NotFoundException;
+import com.udemy.libraryapi.exception.ServiceUnavailableException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -11,9 +17,27 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
+    // business messages are a small fixed set, the bound only guards against dynamic ones
+    private static final int MAX_CACHED_BODIES = 64;
+
+    private final ObjectMapper objectMapper;
+    private final byte[] notFoundBody;
+    private final byte[] unavailableBody;
+    private final Map<String, byte[]> businessBodies = new ConcurrentHashMap<>();
+
+    public ApplicationControllerAdvice(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.objectMapper = objectMapper;
+        this.notFoundBody = objectMapper.writeValueAsBytes(new ApiErrors(NotFoundException.INSTANCE.getMessage()));
+        this.unavailableBody = objectMapper.writeValueAsBytes(new ApiErrors(ServiceUnavailableException.INSTANCE.getMessage()));
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ApiErrors handleValidationException(MethodArgumentNotValidException exception){
@@ -22,13 +46,44 @@ public class ApplicationControllerAdvice {
     }
 
     @ExceptionHandler(BusinessException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ApiErrors handleBusinessException(BusinessException exception){
-        return new ApiErrors(exception);
+    public ResponseEntity<byte[]> handleBusinessException(BusinessException exception){
+        byte[] body = businessBodies.get(exception.getMessage());
+        if(body == null){
+            body = serialize(new ApiErrors(exception));
+            if(businessBodies.size() < MAX_CACHED_BODIES){
+                businessBodies.putIfAbsent(exception.getMessage(), body);
+            }
+        }
+        return json(HttpStatus.BAD_REQUEST, body);
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<byte[]> handleNotFoundException(NotFoundException exception){
+        return json(HttpStatus.NOT_FOUND, notFoundBody);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<byte[]> handleServiceUnavailableException(ServiceUnavailableException exception){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(unavailableBody);
     }
 
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handleResponseStatusException(ResponseStatusException exception){
         return new ResponseEntity(new ApiErrors(exception), exception.getStatus());
     }
+
+    private ResponseEntity<byte[]> json(HttpStatus status, byte[] body){
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private byte[] serialize(ApiErrors errors){
+        try {
+            return objectMapper.writeValueAsBytes(errors);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -17,4 +17,5 @@ public class BookDTO {
     private String author;
     @NotEmpty
     private String isbn;
+    private Boolean available;
 }
@@ -0,0 +1,19 @@
+package com.udemy.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupResultDto {
+    private List<BookDTO> found;
+    private Set<Long> missingIds;
+    private Set<String> missingIsbns;
+}
@@ -0,0 +1,15 @@
+package com.udemy.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookRankDto {
+    private BookDTO book;
+    private long loans;
+}
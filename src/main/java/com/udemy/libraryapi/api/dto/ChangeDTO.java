@@ -0,0 +1,22 @@
+package com.udemy.libraryapi.api.dto;
+
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeDTO {
+    private Long cursor;
+    private EntityType entityType;
+    private Action action;
+    private Long entityId;
+    private Instant changedAt;
+}
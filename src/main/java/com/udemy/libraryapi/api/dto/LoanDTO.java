@@ -1,11 +1,15 @@
 package com.udemy.libraryapi.api.dto;
 
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.domain.entity.Loan;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
+import java.time.LocalDate;
 
 @Builder
 @Data
@@ -19,5 +23,22 @@ public class LoanDTO {
     private String customer;
     @NotEmpty
     private String email;
+    private Long customerId;
+    @Positive
+    private Integer loanDays;
+    private LocalDate dueDate;
     private BookDTO book;
+
+    public static LoanDTO of(Loan loan, BookDTO book){
+        Customer customer = loan.getCustomer();
+        return LoanDTO.builder()
+                .id(loan.getId())
+                .isbn(loan.getBook() != null ? loan.getBook().getIsbn() : null)
+                .customer(customer != null ? customer.getName() : null)
+                .email(customer != null ? customer.getEmail() : null)
+                .customerId(customer != null ? customer.getId() : null)
+                .dueDate(loan.getDueDate())
+                .book(book)
+                .build();
+    }
 }
@@ -12,4 +12,5 @@ import lombok.NoArgsConstructor;
 public class LoanFilterDto {
     private String isbn;
     private String customer;
+    private boolean history;
 }
@@ -21,6 +21,10 @@ public class ApiErrors {
         this.errors = Arrays.asList(exception.getMessage());
     }
 
+    public ApiErrors(String error) {
+        this.errors = Arrays.asList(error);
+    }
+
     public ApiErrors(ResponseStatusException exception) {
         this.errors = Arrays.asList(exception.getReason());
     }
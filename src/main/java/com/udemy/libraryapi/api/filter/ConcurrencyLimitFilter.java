@@ -0,0 +1,70 @@
+package com.udemy.libraryapi.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udemy.libraryapi.api.exception.ApiErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Sheds load with 503 once the adaptive concurrency limit is reached. Loan checkouts
+ * ({@code POST /api/loans}) are high priority, every other request is low priority.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final byte[] overloadedBody;
+    private final Counter shedHighPriority;
+    private final Counter shedLowPriority;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) throws IOException {
+        this.limiter = limiter;
+        this.overloadedBody = objectMapper.writeValueAsBytes(new ApiErrors("Server overloaded, try again later"));
+
+        Gauge.builder("library.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("library.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .register(meterRegistry);
+        this.shedHighPriority = Counter.builder("library.concurrency.shed").tag("priority", "high")
+                .register(meterRegistry);
+        this.shedLowPriority = Counter.builder("library.concurrency.shed").tag("priority", "low")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean highPriority = isCheckout(request);
+
+        if (!limiter.tryAcquire(highPriority)) {
+            (highPriority ? shedHighPriority : shedLowPriority).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(overloadedBody);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isCheckout(HttpServletRequest request) {
+        return "POST".equals(request.getMethod()) && "/api/loans".equals(request.getRequestURI());
+    }
+}
@@ -0,0 +1,122 @@
+package com.udemy.libraryapi.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.udemy.libraryapi.api.exception.ApiErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Throttles each client with separate read and write budgets. A client is the authenticated principal,
+ * else a known API key, else the remote address: unknown keys are ignored, so a client cannot rotate
+ * the header to get a fresh burst. Each budget tracks at most {@code maxClients} buckets.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_HEADER = "X-API-Key";
+
+    private final Budget read;
+    private final Budget write;
+    private final Set<String> apiKeys;
+    private final byte[] tooManyRequestsBody;
+
+    public RateLimitFilter(Budget read, Budget write, Set<String> apiKeys, ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) throws IOException {
+        this.apiKeys = apiKeys;
+        this.read = read.withCounter(meterRegistry, "read");
+        this.write = write.withCounter(meterRegistry, "write");
+        this.tooManyRequestsBody = objectMapper.writeValueAsBytes(new ApiErrors("Too many requests"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Budget budget = isRead(request) ? read : write;
+
+        if (!budget.tryAcquire(clientOf(request), System.nanoTime())) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(tooManyRequestsBody);
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${application.ratelimit.eviction-interval-ms:60000}")
+    public void evictFullBuckets() {
+        long now = System.nanoTime();
+        read.evictFull(now);
+        write.evictFull(now);
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String apiKey = request.getHeader(CLIENT_HEADER);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+
+    public static class Budget {
+
+        private final double tokensPerSecond;
+        private final int burst;
+        private final Cache<String, TokenBucket> buckets;
+        private Counter throttled;
+
+        public Budget(double tokensPerSecond, int burst, long maxClients) {
+            this.tokensPerSecond = tokensPerSecond;
+            this.burst = burst;
+            this.buckets = Caffeine.newBuilder().maximumSize(maxClients).build();
+        }
+
+        Budget withCounter(MeterRegistry meterRegistry, String name) {
+            this.throttled = Counter.builder("library.ratelimit.throttled")
+                    .description("Requests rejected by the per-client rate limit")
+                    .tag("budget", name)
+                    .register(meterRegistry);
+            return this;
+        }
+
+        boolean tryAcquire(String client, long nowNanos) {
+            TokenBucket bucket = buckets.getIfPresent(client);
+            if (bucket == null) {
+                bucket = buckets.get(client, key -> new TokenBucket(tokensPerSecond, burst, nowNanos));
+            }
+            if (bucket.tryAcquire(nowNanos)) {
+                return true;
+            }
+            throttled.increment();
+            return false;
+        }
+
+        void evictFull(long nowNanos) {
+            buckets.asMap().values().removeIf(bucket -> bucket.isFull(nowNanos));
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.udemy.libraryapi.api.resource;
 
 import com.udemy.libraryapi.api.dto.BookDTO;
+import com.udemy.libraryapi.api.dto.BookLookupDto;
+import com.udemy.libraryapi.api.dto.BookLookupResultDto;
+import com.udemy.libraryapi.api.dto.BookRankDto;
 import com.udemy.libraryapi.api.dto.LoanDTO;
+import com.udemy.libraryapi.api.dto.RelatedBookDto;
+import com.udemy.libraryapi.config.logging.LogMarkers;
 import com.udemy.libraryapi.domain.entity.Book;
 import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.exception.NotFoundException;
 import com.udemy.libraryapi.service.BookService;
 import com.udemy.libraryapi.service.LoanService;
+import com.udemy.libraryapi.service.PopularBooksService;
+import com.udemy.libraryapi.service.RelatedBooksService;
+import com.udemy.libraryapi.service.impl.CoBorrowIndex;
+import com.udemy.libraryapi.service.impl.SpaceSavingSketch;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -20,7 +31,12 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -29,14 +45,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BookController {
 
+    @Value("${application.book.lookup.max-size:1000}")
+    private int lookupMaxSize;
+
     private BookService service;
     private ModelMapper modelMapper;
     private LoanService loanService;
+    private PopularBooksService popularBooksService;
+    private RelatedBooksService relatedBooksService;
 
-    public BookController(BookService service, ModelMapper modelMapper, LoanService loanService){
+    public BookController(BookService service, ModelMapper modelMapper, LoanService loanService,
+                          PopularBooksService popularBooksService, RelatedBooksService relatedBooksService){
         this.service = service;
         this.modelMapper = modelMapper;
         this.loanService = loanService;
+        this.popularBooksService = popularBooksService;
+        this.relatedBooksService = relatedBooksService;
     }
 
     @PostMapping
@@ -54,10 +78,10 @@ public class BookController {
     @ApiOperation("OBTAINS A BOOK DETAILS BY ID")
     @GetMapping("{id}")
     public BookDTO get(@PathVariable(value = "id") Long id){
-        log.info("obtaining details for book id: {} ", id);
+        log.info(LogMarkers.READ, "obtaining details for book id: {} ", id);
         return service.getById(id)
                 .map( book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+                .orElseThrow(()-> NotFoundException.INSTANCE);
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -69,7 +93,7 @@ public class BookController {
     public void delete(@PathVariable Long id){
         log.info("delete book of id: {} ", id);
         Book book = service.getById(id)
-                .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+                .orElseThrow(()-> NotFoundException.INSTANCE);
 
         service.delete(book);
 
@@ -79,16 +103,10 @@ public class BookController {
     @ApiOperation("UPDATE A BOOK")
     public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto){
         log.info("update book of id: {} ", id);
-        return service.getById(id)
-            .map(book -> {
-
-                book.setAuthor(dto.getAuthor());
-                book.setTitle(dto.getTitle());
-                book = service.update(book);
-                return modelMapper.map(book, BookDTO.class);
-
-            })
-            .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Book changes = modelMapper.map(dto, Book.class);
+        return service.updateBook(id, changes)
+            .map(book -> modelMapper.map(book, BookDTO.class))
+            .orElseThrow(()-> NotFoundException.INSTANCE);
 
     }
 
@@ -97,29 +115,115 @@ public class BookController {
     public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
         Book filter = modelMapper.map(dto, Book.class);
         Page<Book> result = service.find(filter, pageRequest);
+
+        Set<Long> loanedBookIds = loanService.getLoanedBookIds(result.getContent()
+                .stream()
+                .map(Book::getId)
+                .collect(Collectors.toList()));
+
         List<BookDTO> list = result.getContent().stream()
-                .map( entity -> modelMapper.map(entity, BookDTO.class))
+                .map( entity -> {
+                    BookDTO bookDTO = modelMapper.map(entity, BookDTO.class);
+                    bookDTO.setAvailable(!loanedBookIds.contains(entity.getId()));
+                    return bookDTO;
+                })
                 .collect(Collectors.toList());
 
         return new PageImpl<>(list, pageRequest, result.getTotalElements());
     }
 
+    @GetMapping("popular")
+    @ApiOperation("MOST BORROWED BOOKS OF THE LAST DAYS")
+    public List<BookRankDto> popular(@RequestParam(value = "window", defaultValue = "7") int window,
+                                     @RequestParam(value = "limit", defaultValue = "10") int limit){
+        if(window < 1 || window > popularBooksService.getMaxWindowDays() || limit < 1 || limit > 100){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "window must be between 1 and " + popularBooksService.getMaxWindowDays()
+                            + " days and limit between 1 and 100");
+        }
+        List<SpaceSavingSketch.Counter> ranking = popularBooksService.getMostBorrowed(window, limit);
+
+        Map<Long, Book> books = new HashMap<>();
+        service.getByIds(ranking.stream().map(SpaceSavingSketch.Counter::getItem).collect(Collectors.toList()))
+                .forEach(book -> books.put(book.getId(), book));
+
+        return ranking.stream()
+                .filter(counter -> books.containsKey(counter.getItem()))
+                .map(counter -> BookRankDto.builder()
+                        .book(modelMapper.map(books.get(counter.getItem()), BookDTO.class))
+                        .loans(counter.getCount())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("{id}/related")
+    @ApiOperation("BOOKS BORROWED BY THE CUSTOMERS WHO BORROWED THIS ONE")
+    public List<RelatedBookDto> related(@PathVariable Long id,
+                                        @RequestParam(value = "limit", defaultValue = "10") int limit){
+        if(limit < 1 || limit > relatedBooksService.getTopK()){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + relatedBooksService.getTopK());
+        }
+        service.getById(id).orElseThrow(()-> NotFoundException.INSTANCE);
+
+        List<CoBorrowIndex.Related> related = relatedBooksService.getRelated(id, limit);
+
+        Map<Long, Book> books = new HashMap<>();
+        service.getByIds(related.stream().map(CoBorrowIndex.Related::getBookId).collect(Collectors.toList()))
+                .forEach(book -> books.put(book.getId(), book));
+
+        return related.stream()
+                .filter(neighbour -> books.containsKey(neighbour.getBookId()))
+                .map(neighbour -> RelatedBookDto.builder()
+                        .book(modelMapper.map(books.get(neighbour.getBookId()), BookDTO.class))
+                        .coBorrowers(neighbour.getCount())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @PostMapping("lookup")
+    @ApiOperation("FIND BOOKS BY A LIST OF IDS OR ISBNS")
+    public BookLookupResultDto lookup(@RequestBody BookLookupDto dto){
+        Set<Long> ids = dto.getIds() == null ? new LinkedHashSet<>() : new LinkedHashSet<>(dto.getIds());
+        Set<String> isbns = dto.getIsbns() == null ? new LinkedHashSet<>() : new LinkedHashSet<>(dto.getIsbns());
+        if(ids.size() + isbns.size() > lookupMaxSize){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + lookupMaxSize + " ids and isbns per lookup");
+        }
+
+        Map<Long, Book> found = new LinkedHashMap<>();
+        service.getByIds(ids).forEach(book -> found.put(book.getId(), book));
+        service.getByIsbns(isbns).forEach(book -> found.putIfAbsent(book.getId(), book));
+
+        Set<Long> missingIds = new LinkedHashSet<>(ids);
+        Set<String> missingIsbns = new LinkedHashSet<>(isbns);
+        found.values().forEach(book -> {
+            missingIds.remove(book.getId());
+            missingIsbns.remove(book.getIsbn());
+        });
+
+        return BookLookupResultDto.builder()
+                .found(found.values().stream()
+                        .map(book -> modelMapper.map(book, BookDTO.class))
+                        .collect(Collectors.toList()))
+                .missingIds(missingIds)
+                .missingIsbns(missingIsbns)
+                .build();
+    }
+
     @GetMapping("{id}/loans")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable page){
+    public Page<LoanDTO> loansByBook(@PathVariable Long id,
+                                     @RequestParam(value = "history", defaultValue = "false") boolean history,
+                                     Pageable page){
         Book book = service.getById(id).orElseThrow(
-                ()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+                ()-> NotFoundException.INSTANCE);
 
-        Page<Loan> result = loanService.getLoansByBook(book, page);
+        Page<Loan> result = loanService.getLoansByBook(book, page, history);
 
         List<LoanDTO> list = result.getContent()
                 .stream()
-                .map(loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
+                .map(loan -> LoanDTO.of(loan, modelMapper.map(loan.getBook(), BookDTO.class)))
+                .collect(Collectors.toList());
 
         return new PageImpl<>(list, page, result.getTotalElements());
 
@@ -0,0 +1,57 @@
+package com.udemy.libraryapi.api.resource;
+
+import com.udemy.libraryapi.api.dto.ChangeDTO;
+import com.udemy.libraryapi.api.dto.ChangeFeedDto;
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.service.ChangeLogService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/changes")
+@Api("Change API")
+public class ChangeController {
+
+    @Value("${application.changes.max-limit:1000}")
+    private int maxLimit;
+
+    private ChangeLogService service;
+
+    public ChangeController(ChangeLogService service){
+        this.service = service;
+    }
+
+    @GetMapping
+    @ApiOperation("LIST BOOK AND LOAN CHANGES AFTER A CURSOR")
+    public ChangeFeedDto changes(@RequestParam(value = "since", defaultValue = "0") long since,
+                                 @RequestParam(value = "limit", defaultValue = "100") int limit){
+        if(since < 0 || limit < 1 || limit > maxLimit){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "since must not be negative and limit must be between 1 and " + maxLimit);
+        }
+        List<ChangeLog> changes = service.getChangesAfter(since, limit);
+
+        List<ChangeDTO> dtos = changes.stream()
+                .map(change -> ChangeDTO.builder()
+                        .cursor(change.getId())
+                        .entityType(change.getEntityType())
+                        .action(change.getAction())
+                        .entityId(change.getEntityId())
+                        .changedAt(change.getChangedAt())
+                        .build())
+                .collect(Collectors.toList());
+
+        long nextCursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+        return ChangeFeedDto.builder().changes(dtos).nextCursor(nextCursor).build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.udemy.libraryapi.api.resource;
+
+import com.udemy.libraryapi.api.dto.BookDTO;
+import com.udemy.libraryapi.api.dto.LoanDTO;
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.exception.NotFoundException;
+import com.udemy.libraryapi.service.CustomerService;
+import com.udemy.libraryapi.service.LoanService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/customers")
+@Api("Customer API")
+@RequiredArgsConstructor
+public class CustomerController {
+
+    private final CustomerService service;
+    private final LoanService loanService;
+    private final ModelMapper modelMapper;
+
+    @GetMapping("{id}/loans")
+    @ApiOperation("LOANS OF A CUSTOMER, MOST RECENT FIRST")
+    public Page<LoanDTO> loansByCustomer(@PathVariable Long id,
+                                         @RequestParam(value = "history", defaultValue = "false") boolean history,
+                                         @PageableDefault(sort = "loanDate", direction = Sort.Direction.DESC)
+                                                 Pageable page){
+        Customer customer = service.getById(id).orElseThrow(
+                ()-> NotFoundException.INSTANCE);
+
+        Page<Loan> result = loanService.getLoansByCustomer(customer, page, history);
+
+        List<LoanDTO> list = result.getContent()
+                .stream()
+                .map(loan -> LoanDTO.of(loan, modelMapper.map(loan.getBook(), BookDTO.class)))
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(list, page, result.getTotalElements());
+    }
+}
@@ -0,0 +1,26 @@
+package com.udemy.libraryapi.api.resource;
+
+import com.udemy.libraryapi.service.ChangeEventBroadcaster;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+@Api("Event API")
+@RequiredArgsConstructor
+public class EventController {
+
+    private final ChangeEventBroadcaster broadcaster;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation("STREAM BOOK AND LOAN CHANGES")
+    public SseEmitter stream(){
+        return broadcaster.subscribe();
+    }
+}
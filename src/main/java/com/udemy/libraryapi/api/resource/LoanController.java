@@ -5,8 +5,12 @@ import com.udemy.libraryapi.api.dto.LoanDTO;
 import com.udemy.libraryapi.api.dto.LoanFilterDto;
 import com.udemy.libraryapi.api.dto.ReturnedLoanDto;
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.exception.BusinessException;
+import com.udemy.libraryapi.exception.NotFoundException;
 import com.udemy.libraryapi.service.BookService;
+import com.udemy.libraryapi.service.IdempotencyService;
 import com.udemy.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
@@ -16,7 +20,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
@@ -28,21 +31,39 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class LoanController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final BusinessException BOOK_NOT_FOUND = new BusinessException("Book not found for passed isbn");
+
     private final LoanService service;
     private final ModelMapper model;
     private final BookService bookService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Long create(@RequestBody @Valid LoanDTO dto){
+    public Long create(@RequestBody @Valid LoanDTO dto,
+                       @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey){
+        if(idempotencyKey == null){
+            return createLoan(dto);
+        }
+        String fingerprint = String.join("|", dto.getIsbn(), dto.getCustomer(), dto.getEmail());
+        if(dto.getLoanDays() != null){
+            fingerprint = fingerprint + "|" + dto.getLoanDays();
+        }
+        return idempotencyService.execute(idempotencyKey, fingerprint, () -> createLoan(dto));
+    }
+
+    private Long createLoan(LoanDTO dto){
         Book book = bookService.getBookByIsbn(dto.getIsbn())
-                .orElseThrow(()-> new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                        "Book not found for passed isbn"));
+                .orElseThrow(()-> BOOK_NOT_FOUND);
 
+        LocalDate loanDate = LocalDate.now();
         Loan entity = Loan.builder()
                 .book(book)
-                .customer(dto.getCustomer())
-                .loanDate(LocalDate.now())
+                .customer(Customer.builder().name(dto.getCustomer()).email(dto.getEmail()).build())
+                .loanDate(loanDate)
+                .dueDate(dto.getLoanDays() != null ? loanDate.plusDays(dto.getLoanDays()) : null)
                 .build();
 
         entity = service.save(entity);
@@ -52,12 +73,9 @@ public class LoanController {
 
     @PatchMapping("{id}")
     public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDto dto){
-        Loan loan = service.getById(id).orElseThrow(()->
-                new ResponseStatusException(HttpStatus.NOT_FOUND));
-
-        loan.setReturned(dto.getReturned());
-        service.update(loan);
-
+        if(!service.returnLoan(id, dto.getReturned())){
+            throw NotFoundException.INSTANCE;
+        }
     }
 
     @GetMapping
@@ -66,15 +84,8 @@ public class LoanController {
         List<LoanDTO> loans = result
                 .getContent()
                 .stream()
-                .map(entity -> {
-
-                    Book book = entity.getBook();
-                    BookDTO bookDto = model.map(book, BookDTO.class);
-                    LoanDTO loanDto =  model.map(entity, LoanDTO.class);
-                    loanDto.setBook(bookDto);
-
-                    return loanDto;
-                }).collect(Collectors.toList());
+                .map(entity -> LoanDTO.of(entity, model.map(entity.getBook(), BookDTO.class)))
+                .collect(Collectors.toList());
 
         return new PageImpl<LoanDTO>(loans, page, result.getTotalElements());
 
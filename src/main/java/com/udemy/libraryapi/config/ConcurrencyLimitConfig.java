@@ -0,0 +1,43 @@
+package com.udemy.libraryapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udemy.libraryapi.api.filter.AdaptiveConcurrencyLimiter;
+import com.udemy.libraryapi.api.filter.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(name = "application.concurrency.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(
+            @Value("${application.concurrency.initial-limit}") int initialLimit,
+            @Value("${application.concurrency.min-limit}") int minLimit,
+            @Value("${application.concurrency.max-limit}") int maxLimit,
+            @Value("${application.concurrency.latency-threshold-ms}") long latencyThresholdMillis,
+            @Value("${application.concurrency.backoff-ratio}") double backoffRatio,
+            @Value("${application.concurrency.low-priority-share}") double lowPriorityShare){
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis), backoffRatio, lowPriorityShare);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilterRegistration(
+            AdaptiveConcurrencyLimiter limiter, ObjectMapper objectMapper, MeterRegistry meterRegistry) throws IOException {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(limiter, objectMapper, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        // after the rate limit, so throttled clients never take a concurrency slot
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
@@ -0,0 +1,41 @@
+package com.udemy.libraryapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udemy.libraryapi.api.filter.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.util.Set;
+
+@Configuration
+@ConditionalOnProperty(name = "application.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimitFilter rateLimitFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                           @Value("${application.ratelimit.read.requests-per-second}") double readRate,
+                                           @Value("${application.ratelimit.read.burst}") int readBurst,
+                                           @Value("${application.ratelimit.write.requests-per-second}") double writeRate,
+                                           @Value("${application.ratelimit.write.burst}") int writeBurst,
+                                           @Value("${application.ratelimit.max-clients:10000}") long maxClients,
+                                           @Value("${application.ratelimit.api-keys:}") Set<String> apiKeys) throws IOException {
+        return new RateLimitFilter(
+                new RateLimitFilter.Budget(readRate, readBurst, maxClients),
+                new RateLimitFilter.Budget(writeRate, writeBurst, maxClients),
+                apiKeys, objectMapper, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter){
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
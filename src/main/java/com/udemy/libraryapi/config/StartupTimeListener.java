@@ -0,0 +1,47 @@
+package com.udemy.libraryapi.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reports the time from JVM start until the application is ready to serve requests.
+ * With {@code application.startup.exit-on-ready=true} the application exits right after,
+ * which the startup benchmark and the AppCDS class list dump rely on.
+ */
+@Slf4j
+@Component
+public class StartupTimeListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Value("${application.startup.exit-on-ready:false}")
+    private boolean exitOnReady;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public StartupTimeListener(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Application ready in {} ms", readyMillis);
+
+        meterRegistry.ifAvailable(registry -> Gauge
+                .builder("application.time-to-ready", () -> readyMillis)
+                .baseUnit("milliseconds")
+                .register(registry));
+
+        if (exitOnReady) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
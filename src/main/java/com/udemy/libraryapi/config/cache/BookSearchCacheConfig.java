@@ -0,0 +1,51 @@
+package com.udemy.libraryapi.config.cache;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Locale;
+
+/**
+ * Caching runs outside the service transactions so evictions only happen once a write has committed.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class BookSearchCacheConfig {
+
+    @Bean
+    public CacheResolver bookSearchCacheResolver(CacheManager cacheManager,
+                                                 ObjectProvider<CacheMetricsRegistrar> metricsRegistrar){
+        return new BookSearchCacheResolver(cacheManager, metricsRegistrar.getIfAvailable());
+    }
+
+    @Bean
+    public KeyGenerator bookSearchKeyGenerator(){
+        return (target, method, params) -> {
+            Book filter = (Book) params[0];
+            Pageable page = (Pageable) params[1];
+            return new SimpleKey(
+                    filter.getId(),
+                    normalize(filter.getTitle()),
+                    normalize(filter.getAuthor()),
+                    normalize(filter.getIsbn()),
+                    page.isPaged() ? page.getPageNumber() : null,
+                    page.isPaged() ? page.getPageSize() : null,
+                    page.getSort().toString());
+        };
+    }
+
+    // the search ignores case, so differently cased filters share one entry
+    private static String normalize(String value){
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
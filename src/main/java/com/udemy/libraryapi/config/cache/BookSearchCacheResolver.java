@@ -0,0 +1,62 @@
+package com.udemy.libraryapi.config.cache;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import io.micrometer.core.instrument.Tag;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheEvictOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Keeps one cache per filter shape (which of id, title, author and isbn are set), so hit ratio
+ * metrics can be read per shape. Evictions clear every shape, since any write may change any search.
+ * All sixteen shapes are registered up front, so a write before the first search still has caches
+ * to evict instead of failing the cache operation.
+ */
+public class BookSearchCacheResolver implements CacheResolver {
+
+    static final String CACHE_PREFIX = "bookSearch.";
+
+    private final Map<String, Cache> caches = new HashMap<>();
+
+    public BookSearchCacheResolver(CacheManager cacheManager, CacheMetricsRegistrar metricsRegistrar) {
+        for (int fields = 0; fields < 16; fields++) {
+            String shape = shapeOf((fields & 1) != 0, (fields & 2) != 0, (fields & 4) != 0, (fields & 8) != 0);
+            Cache cache = cacheManager.getCache(CACHE_PREFIX + shape);
+            if (metricsRegistrar != null) {
+                metricsRegistrar.bindCacheToRegistry(cache, Tag.of("shape", shape));
+            }
+            caches.put(shape, cache);
+        }
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        if (context.getOperation() instanceof CacheEvictOperation) {
+            return caches.values();
+        }
+        return Collections.singleton(caches.get(shapeOf((Book) context.getArgs()[0])));
+    }
+
+    static String shapeOf(Book filter) {
+        return shapeOf(filter.getId() != null, filter.getTitle() != null,
+                filter.getAuthor() != null, filter.getIsbn() != null);
+    }
+
+    private static String shapeOf(boolean id, boolean title, boolean author, boolean isbn) {
+        StringJoiner shape = new StringJoiner("+");
+        if (id) shape.add("id");
+        if (title) shape.add("title");
+        if (author) shape.add("author");
+        if (isbn) shape.add("isbn");
+        return shape.length() == 0 ? "empty" : shape.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.udemy.libraryapi.config.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+
+/**
+ * Binds the calling client (authenticated principal, or remote address without one) to the request thread,
+ * so the routing data source can keep that client's reads on the primary after its own writes.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReplicationRoutingDataSource routing;
+
+    public ReadYourWritesFilter(ReplicationRoutingDataSource routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        routing.bindClient(clientOf(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            routing.unbindClient();
+        }
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "addr:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,25 @@
+package com.udemy.libraryapi.config.datasource;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+
+/**
+ * Turns open-in-view off when replicas are enabled. A request-wide entity manager holds the first
+ * connection it gets, so a read-only lookup at the start of a request would pin later writes to the replica.
+ */
+public class ReplicaEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (environment.getProperty("application.datasource.replica.enabled", Boolean.class, false)) {
+            environment.getPropertySources().addFirst(
+                    new MapPropertySource("replicaDataSource", Collections.singletonMap(OPEN_IN_VIEW, false)));
+        }
+    }
+}
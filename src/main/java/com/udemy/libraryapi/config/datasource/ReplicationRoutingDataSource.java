@@ -0,0 +1,79 @@
+package com.udemy.libraryapi.config.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * After a client's write commits, that client's reads stay on the primary for {@code maxStalenessMillis},
+ * so it never reads its own mutation back from a lagging replica. Other clients keep reading the replica.
+ * Threads without a bound client (scheduled jobs) always read the replica.
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final long maxStalenessMillis;
+
+    private final Cache<String, Long> lastWriteMillis;
+
+    private final ThreadLocal<String> currentClient = new ThreadLocal<>();
+
+    public ReplicationRoutingDataSource(long maxStalenessMillis, long maxTrackedClients) {
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.lastWriteMillis = Caffeine.newBuilder()
+                .expireAfterWrite(maxStalenessMillis, TimeUnit.MILLISECONDS)
+                .maximumSize(maxTrackedClients)
+                .build();
+    }
+
+    public void bindClient(String client) {
+        currentClient.set(client);
+    }
+
+    public void unbindClient() {
+        currentClient.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String client = currentClient.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (client != null) {
+                registerWrite(client);
+            }
+            return Route.PRIMARY;
+        }
+        if (client != null && wroteRecently(client)) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    private boolean wroteRecently(String client) {
+        Long writtenAt = lastWriteMillis.getIfPresent(client);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt < maxStalenessMillis;
+    }
+
+    private void registerWrite(String client) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markWrite(client);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markWrite(client);
+            }
+        });
+    }
+
+    void markWrite(String client) {
+        lastWriteMillis.asMap().merge(client, System.currentTimeMillis(), Math::max);
+    }
+}
@@ -0,0 +1,21 @@
+package com.udemy.libraryapi.config.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("library.logging.dropped", this, binder -> RingBufferAsyncAppender.totalDropped())
+                .description("Log events dropped because the async buffer was full")
+                .register(registry);
+        Gauge.builder("library.logging.queued", RingBufferAsyncAppender::totalQueued)
+                .description("Log events waiting in the async buffer")
+                .register(registry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.udemy.libraryapi.config.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+public final class LogMarkers {
+
+    /**
+     * Marks high volume read logs, which {@link SamplingFilter} lets through only in part.
+     */
+    public static final Marker READ = MarkerFactory.getMarker("READ");
+
+    private LogMarkers() {
+    }
+}
@@ -0,0 +1,168 @@
+package com.udemy.libraryapi.config.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands log events to the attached appenders on a single worker thread through a
+ * {@link MpscRingBuffer}, so request threads never wait on the file or its lock. When the
+ * buffer is full the event is dropped and counted, or with {@code neverBlock=false} the
+ * caller waits for room.
+ */
+public class RingBufferAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final Set<RingBufferAsyncAppender> RUNNING = ConcurrentHashMap.newKeySet();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private int bufferSize = 8192;
+    private boolean neverBlock = true;
+    private long maxFlushMillis = 1000;
+
+    private MpscRingBuffer<ILoggingEvent> buffer;
+    private Thread worker;
+    private volatile boolean draining;
+
+    public static long totalDropped() {
+        long total = 0;
+        for (RingBufferAsyncAppender appender : RUNNING) {
+            total += appender.dropped.get();
+        }
+        return total;
+    }
+
+    public static long totalQueued() {
+        long total = 0;
+        for (RingBufferAsyncAppender appender : RUNNING) {
+            total += appender.buffer.size();
+        }
+        return total;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        buffer = new MpscRingBuffer<>(bufferSize);
+        draining = true;
+        worker = new Thread(this::drain, "async-log-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        RUNNING.add(this);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        RUNNING.remove(this);
+        draining = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (buffer.offer(event)) {
+            return;
+        }
+        // the worker itself must never wait on the buffer it is supposed to empty
+        if (neverBlock || Thread.currentThread() == worker) {
+            dropped.incrementAndGet();
+            return;
+        }
+        while (isStarted() && !buffer.offer(event)) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private void drain() {
+        while (draining) {
+            ILoggingEvent event = buffer.poll();
+            if (event == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            appenders.appendLoopOnAppenders(event);
+        }
+        ILoggingEvent event;
+        while ((event = buffer.poll()) != null) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setNeverBlock(boolean neverBlock) {
+        this.neverBlock = neverBlock;
+    }
+
+    public void setMaxFlushMillis(long maxFlushMillis) {
+        this.maxFlushMillis = maxFlushMillis;
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
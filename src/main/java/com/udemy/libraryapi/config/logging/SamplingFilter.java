@@ -0,0 +1,31 @@
+package com.udemy.libraryapi.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one in {@code rate} events marked {@link LogMarkers#READ} below WARN and lets every
+ * other event through.
+ */
+public class SamplingFilter extends Filter<ILoggingEvent> {
+
+    private final AtomicLong seen = new AtomicLong();
+    private int rate = 10;
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (rate <= 1 || event.getMarker() == null || !event.getMarker().contains(LogMarkers.READ)
+                || event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        return seen.getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+}
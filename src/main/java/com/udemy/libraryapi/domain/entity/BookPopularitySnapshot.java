@@ -0,0 +1,32 @@
+package com.udemy.libraryapi.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "book_popularity_snapshot")
+public class BookPopularitySnapshot {
+    @Id
+    private LocalDate day;
+
+    // change feed position the counters include every loan up to
+    @Column(nullable = false)
+    private Long cursor;
+
+    @Lob
+    @Column(nullable = false)
+    private String counters;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
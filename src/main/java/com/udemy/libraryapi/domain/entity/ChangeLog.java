@@ -0,0 +1,38 @@
+package com.udemy.libraryapi.domain.entity;
+
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "change_log")
+public class ChangeLog {
+    // the identity doubles as the feed cursor, so it only ever grows
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private EntityType entityType;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Action action;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false)
+    private Instant changedAt;
+}
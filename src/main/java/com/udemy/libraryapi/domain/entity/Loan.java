@@ -13,24 +13,44 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_loan_customer_loan_date", columnList = "id_customer, loan_date"),
+        @Index(name = "idx_loan_due_date", columnList = "due_date"),
+        @Index(name = "idx_loan_last_notified_date", columnList = "last_notified_date")
+})
 public class Loan {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column
-    private String customer;
-
-    @Column(name = "customer_email")
-    private String customerEmail;
+    @JoinColumn(name = "id_customer")
+    @ManyToOne
+    private Customer customer;
 
     @JoinColumn(name = "id_book")
     @ManyToOne
     private Book book;
 
-    @Column
+    @Column(name = "loan_date")
     private LocalDate loanDate;
 
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
     @Column
     private Boolean returned;
+
+    @Column
+    private LocalDate returnDate;
+
+    @Column(name = "last_notified_date")
+    private LocalDate lastNotifiedDate;
+
+    // loans saved before due dates were stored have none: they fall due defaultLoanDays after the loan date
+    public static LocalDate effectiveDueDate(LocalDate loanDate, LocalDate dueDate, int defaultLoanDays) {
+        return dueDate != null ? dueDate : loanDate.plusDays(defaultLoanDays);
+    }
+
+    public LocalDate effectiveDueDate(int defaultLoanDays) {
+        return effectiveDueDate(loanDate, dueDate, defaultLoanDays);
+    }
 }
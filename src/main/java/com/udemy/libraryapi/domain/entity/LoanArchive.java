@@ -0,0 +1,69 @@
+package com.udemy.libraryapi.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "loan_archive",
+        indexes = @Index(name = "idx_loan_archive_customer_loan_date", columnList = "id_customer, loan_date"))
+public class LoanArchive {
+    @Id
+    private Long id;
+
+    @JoinColumn(name = "id_customer")
+    @ManyToOne
+    private Customer customer;
+
+    @JoinColumn(name = "id_book")
+    @ManyToOne
+    private Book book;
+
+    @Column(name = "loan_date")
+    private LocalDate loanDate;
+
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
+    @Column
+    private Boolean returned;
+
+    @Column
+    private LocalDate returnDate;
+
+    @Column
+    private LocalDate archivedDate;
+
+    public static LoanArchive of(Loan loan, LocalDate archivedDate){
+        return LoanArchive.builder()
+                .id(loan.getId())
+                .customer(loan.getCustomer())
+                .book(loan.getBook())
+                .loanDate(loan.getLoanDate())
+                .dueDate(loan.getDueDate())
+                .returned(loan.getReturned())
+                .returnDate(loan.getReturnDate())
+                .archivedDate(archivedDate)
+                .build();
+    }
+
+    public Loan toLoan(){
+        return Loan.builder()
+                .id(id)
+                .customer(customer)
+                .book(book)
+                .loanDate(loanDate)
+                .dueDate(dueDate)
+                .returned(returned)
+                .returnDate(returnDate)
+                .build();
+    }
+}
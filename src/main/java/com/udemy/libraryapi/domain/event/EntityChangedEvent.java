@@ -0,0 +1,33 @@
+package com.udemy.libraryapi.domain.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Published by the services after every book and loan mutation.
+ */
+@Getter
+public class EntityChangedEvent {
+
+    public enum EntityType { BOOK, LOAN }
+
+    public enum Action { CREATED, UPDATED, DELETED }
+
+    private final EntityType entityType;
+    private final Action action;
+    private final Long entityId;
+    private final Instant occurredAt;
+
+    @JsonIgnore
+    private final Object entity;
+
+    public EntityChangedEvent(EntityType entityType, Action action, Long entityId, Object entity) {
+        this.entityType = entityType;
+        this.action = action;
+        this.entityId = entityId;
+        this.entity = entity;
+        this.occurredAt = Instant.now();
+    }
+}
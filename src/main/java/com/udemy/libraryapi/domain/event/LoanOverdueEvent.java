@@ -0,0 +1,20 @@
+package com.udemy.libraryapi.domain.event;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Published the moment an open loan passes its due date.
+ */
+@Getter
+public class LoanOverdueEvent {
+
+    private final Long loanId;
+    private final Instant occurredAt;
+
+    public LoanOverdueEvent(Long loanId) {
+        this.loanId = loanId;
+        this.occurredAt = Instant.now();
+    }
+}
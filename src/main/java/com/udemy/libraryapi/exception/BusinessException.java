@@ -1,7 +1,12 @@
 package com.udemy.libraryapi.exception;
 
+/**
+ * Thrown for expected business rule violations, which are answered with a 400 and never
+ * logged, so no stack trace is captured. Without a stack trace an instance holds nothing
+ * but its message and can be preallocated and thrown again.
+ */
 public class BusinessException extends RuntimeException{
     public BusinessException(String msg){
-        super(msg);
+        super(msg, null, false, false);
     }
 }
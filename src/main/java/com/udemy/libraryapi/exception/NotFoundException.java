@@ -0,0 +1,14 @@
+package com.udemy.libraryapi.exception;
+
+/**
+ * Answered with a 404. Carries no state, so a single stackless instance is thrown for every
+ * missing resource.
+ */
+public final class NotFoundException extends RuntimeException {
+
+    public static final NotFoundException INSTANCE = new NotFoundException();
+
+    private NotFoundException() {
+        super("Not found", null, false, false);
+    }
+}
@@ -0,0 +1,15 @@
+package com.udemy.libraryapi.exception;
+
+/**
+ * Answered with a 503 when a write could not be taken or acknowledged in time, so the caller
+ * retries instead of reading a server error. Carries no state, so a single stackless instance
+ * is thrown every time.
+ */
+public final class ServiceUnavailableException extends RuntimeException {
+
+    public static final ServiceUnavailableException INSTANCE = new ServiceUnavailableException();
+
+    private ServiceUnavailableException() {
+        super("Service unavailable, try again later", null, false, false);
+    }
+}
@@ -0,0 +1,22 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.BookPopularitySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BookPopularitySnapshotRepository extends JpaRepository<BookPopularitySnapshot, LocalDate> {
+    List<BookPopularitySnapshot> findByDayGreaterThanEqual(LocalDate day);
+
+    @Modifying
+    @Query("update BookPopularitySnapshot s set s.cursor = :cursor where s.cursor < :cursor")
+    int advanceCursor(@Param("cursor") Long cursor);
+
+    @Modifying
+    @Query("delete from BookPopularitySnapshot s where s.day < :day")
+    int deleteByDayBefore(@Param("day") LocalDate day);
+}
@@ -0,0 +1,17 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLog, Long> {
+    @Query("select coalesce(max(c.id), 0) from ChangeLog c")
+    long findLastId();
+
+    @Query("select c from ChangeLog c where c.id > :since order by c.id")
+    List<ChangeLog> findChangesAfter(@Param("since") Long since, Pageable page);
+}
@@ -0,0 +1,10 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    Optional<Customer> findByEmail(String email);
+}
@@ -0,0 +1,25 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+    @Modifying
+    @Query("update JobLock j set j.lockedUntil = :lockedUntil, j.lockedAt = :now, j.lockedBy = :owner " +
+            " where j.name = :name and j.lockedUntil <= :now")
+    int acquire(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("now") Instant now,
+                @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Query("update JobLock j set j.lockedUntil = :lockedUntil where j.name = :name and j.lockedBy = :owner")
+    int release(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("lockedUntil") Instant lockedUntil);
+}
@@ -0,0 +1,7 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+}
@@ -0,0 +1,21 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.domain.entity.LoanArchive;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface LoanArchiveRepository extends LoanSearchRepository<LoanArchive> {
+    Page<LoanArchive> findByCustomer(Customer customer, Pageable page);
+
+    Page<LoanArchive> findByBook(Book book, Pageable page);
+
+    @Query("select l.id as id, l.book.id as bookId, l.customer.id as customerId, l.loanDate as loanDate " +
+            " from LoanArchive l where l.id > :afterId order by l.id")
+    List<LoanRepository.LoanedBook> findLoanedBooksAfter(@Param("afterId") Long afterId, Pageable page);
+}
@@ -1,29 +1,95 @@
 package com.udemy.libraryapi.model.repository;
 
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends LoanSearchRepository<Loan> {
+    interface LoanedBook {
+        Long getId();
+
+        Long getBookId();
+
+        Long getCustomerId();
+
+        LocalDate getLoanDate();
+    }
+
+    interface OpenLoan {
+        Long getId();
+
+        LocalDate getLoanDate();
+
+        LocalDate getDueDate();
+    }
+
     @Query("select case when ( count(l.id) > 0 ) then true else false end " +
             " from Loan l where l.book = :book  and ( l.returned  is null or l.returned is false ) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query("select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
-    Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn,
-                                        @Param("customer")String customer,
-                                        Pageable page);
+    Page<Loan> findByCustomer(Customer customer, Pageable page);
+
+    @Query("select distinct l.book.id from Loan l where l.book.id in :bookIds " +
+            " and ( l.returned  is null or l.returned is false ) ")
+    List<Long> findNotReturnedBookIds(@Param("bookIds") Collection<Long> bookIds);
 
     Page<Loan> findByBook(Book book, Pageable page);
 
-    @Query("select l from Loan l where l.loanDate <= :threeDaysAgo " +
+    @Modifying
+    @Query("update Loan l set l.returned = :returned, l.returnDate = :returnDate where l.id = :id")
+    int updateReturned(@Param("id") Long id,
+                       @Param("returned") Boolean returned,
+                       @Param("returnDate") LocalDate returnDate);
+
+    // loans saved before due dates were stored have none: they fall due defaultLoanDays after the loan date,
+    // so the callers pass the same window shifted back by that many days to match them on loan_date
+    @Query("select l from Loan l where ( l.dueDate < :today " +
+            " or ( l.dueDate is null and l.loanDate < :loanedBefore ) ) " +
             " and ( l.returned  is null or l.returned is false )")
-    List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+    List<Loan> findByDueDateLessThanAndNotReturned(@Param("today") LocalDate today,
+                                                   @Param("loanedBefore") LocalDate loanedBefore);
+
+    @Query("select l from Loan l join fetch l.customer where ( ( l.dueDate >= :from and l.dueDate < :today ) " +
+            " or ( l.dueDate is null and l.loanDate >= :loanedFrom and l.loanDate < :loanedBefore ) ) " +
+            " and l.lastNotifiedDate is null and ( l.returned  is null or l.returned is false )")
+    List<Loan> findNewlyLate(@Param("from") LocalDate from, @Param("today") LocalDate today,
+                             @Param("loanedFrom") LocalDate loanedFrom, @Param("loanedBefore") LocalDate loanedBefore);
+
+    @Query("select l from Loan l join fetch l.customer where l.lastNotifiedDate <= :notifiedBefore " +
+            " and ( l.returned  is null or l.returned is false )")
+    List<Loan> findDueForReminder(@Param("notifiedBefore") LocalDate notifiedBefore);
+
+    @Modifying
+    @Query("update Loan l set l.lastNotifiedDate = :notifiedDate where l.id in :ids")
+    int updateLastNotifiedDate(@Param("ids") Collection<Long> ids, @Param("notifiedDate") LocalDate notifiedDate);
+
+    @Query("select l.id as id, l.book.id as bookId, l.customer.id as customerId, l.loanDate as loanDate " +
+            " from Loan l where l.id in :ids")
+    List<LoanedBook> findLoanedBooksByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.id as id, l.book.id as bookId, l.customer.id as customerId, l.loanDate as loanDate " +
+            " from Loan l where l.id > :afterId order by l.id")
+    List<LoanedBook> findLoanedBooksAfter(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("select l.id as id, l.loanDate as loanDate, l.dueDate as dueDate from Loan l where l.id > :afterId " +
+            " and ( l.returned  is null or l.returned is false ) order by l.id")
+    List<OpenLoan> findOpenLoansAfter(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("select l.id as id, l.loanDate as loanDate, l.dueDate as dueDate from Loan l where l.id in :ids " +
+            " and ( l.returned  is null or l.returned is false )")
+    List<OpenLoan> findOpenLoansByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select l from Loan l where l.returned = true " +
+            " and ( l.returnDate <= :returnedBefore or ( l.returnDate is null and l.loanDate <= :returnedBefore ) )" +
+            " order by l.id")
+    List<Loan> findReturnedBefore(@Param("returnedBefore") LocalDate returnedBefore, Pageable page);
 }
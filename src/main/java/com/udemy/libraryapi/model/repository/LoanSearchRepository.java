@@ -0,0 +1,31 @@
+package com.udemy.libraryapi.model.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Loan searches shared by the hot loan table and the archive, each one a seek on a single index.
+ */
+@NoRepositoryBean
+public interface LoanSearchRepository<T> extends JpaRepository<T, Long> {
+
+    @Query("select l from #{#entityName} l where l.book.id in ( select b.id from Book b where b.isbn = :isbn )")
+    Page<T> findByBookIsbn(@Param("isbn") String isbn, Pageable page);
+
+    Page<T> findByCustomerName(String customer, Pageable page);
+
+    /**
+     * Both seeks stay separate id subqueries, so the database runs each on its own index,
+     * matches the union by primary key and pages it, without the ids ever leaving the database.
+     */
+    @Query("select l from #{#entityName} l where " +
+            " l.id in ( select i.id from #{#entityName} i where i.book.id in " +
+            "   ( select b.id from Book b where b.isbn = :isbn ) ) or " +
+            " l.id in ( select c.id from #{#entityName} c where c.customer.id in " +
+            "   ( select u.id from Customer u where u.name = :customer ) )")
+    Page<T> findByBookIsbnOrCustomerName(@Param("isbn") String isbn, @Param("customer") String customer, Pageable page);
+}
@@ -5,6 +5,8 @@ import com.udemy.libraryapi.domain.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
@@ -16,7 +18,13 @@ public interface BookService {
 
     Book update(Book book);
 
+    Optional<Book> updateBook(Long id, Book book);
+
     Page<Book> find(Book filter, Pageable pageRequest);
 
     Optional<Book> getBookByIsbn(String isbn);
+
+    List<Book> getByIds(Collection<Long> ids);
+
+    List<Book> getByIsbns(Collection<String> isbns);
 }
@@ -0,0 +1,159 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.event.EntityChangedEvent;
+import com.udemy.libraryapi.domain.event.LoanOverdueEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans committed book and loan changes, and overdue loans, out to the Server-Sent Events subscribers.
+ * Publishing never blocks: each subscriber has its own bounded queue, drained by a small
+ * sender pool, and a subscriber whose queue is full is evicted instead of slowing the others.
+ */
+@Slf4j
+@Service
+public class ChangeEventBroadcaster {
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int queueCapacity;
+    private final long subscriptionTimeoutMillis;
+    private final ExecutorService senders;
+    private final Counter evicted;
+
+    @Autowired
+    public ChangeEventBroadcaster(@Value("${application.events.subscriber-queue-size:256}") int queueCapacity,
+                                  @Value("${application.events.subscription-timeout-ms:1800000}") long subscriptionTimeoutMillis,
+                                  @Value("${application.events.sender-threads:2}") int senderThreads,
+                                  MeterRegistry meterRegistry) {
+        this(queueCapacity, subscriptionTimeoutMillis,
+                Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("sse-sender-")),
+                meterRegistry);
+    }
+
+    ChangeEventBroadcaster(int queueCapacity, long subscriptionTimeoutMillis, ExecutorService senders,
+                           MeterRegistry meterRegistry) {
+        this.queueCapacity = queueCapacity;
+        this.subscriptionTimeoutMillis = subscriptionTimeoutMillis;
+        this.senders = senders;
+        this.evicted = meterRegistry.counter("library.events.subscribers.evicted");
+        meterRegistry.gaugeCollectionSize("library.events.subscribers", Tags.empty(), subscribers);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(subscriptionTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(queueCapacity));
+        subscribers.add(subscriber);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(EntityChangedEvent event) {
+        broadcast(new Message(event.getEntityType().name().toLowerCase(), event));
+    }
+
+    @EventListener
+    public void onOverdue(LoanOverdueEvent event) {
+        broadcast(new Message("overdue", event));
+    }
+
+    private void broadcast(Message message) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.offer(message)) {
+                evict(subscriber);
+                continue;
+            }
+            schedule(subscriber);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Message message;
+            while ((message = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .name(message.name)
+                        .data(message.data, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("dropping events subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // an event may have been queued after the last poll but before the flag was cleared
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            evicted.increment();
+            log.info("evicting slow events subscriber");
+            subscriber.emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Message> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<Message> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+
+    private static class Message {
+        private final String name;
+        private final Object data;
+
+        private Message(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent;
+import com.udemy.libraryapi.model.repository.ChangeLogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Records every book and loan change in the change_log table and serves it back in cursor order.
+ * Records are written by a synchronous listener, so they commit or roll back together with the
+ * change itself. Reads stop at the first record younger than the settle window: a transaction that
+ * took a lower id but commits late would otherwise appear behind a cursor a client already moved past.
+ * The window must therefore outlast the longest writing transaction, as the timestamp is taken before commit.
+ */
+@Service
+public class ChangeLogService {
+
+    private final ChangeLogRepository repository;
+    private final Duration settleWindow;
+
+    public ChangeLogService(ChangeLogRepository repository,
+                            @Value("${application.changes.settle-millis:2000}") long settleMillis) {
+        this.repository = repository;
+        this.settleWindow = Duration.ofMillis(settleMillis);
+    }
+
+    @EventListener
+    public void record(EntityChangedEvent event) {
+        repository.save(ChangeLog.builder()
+                .entityType(event.getEntityType())
+                .action(event.getAction())
+                .entityId(event.getEntityId())
+                .changedAt(event.getOccurredAt())
+                .build());
+    }
+
+    @Transactional(readOnly = true)
+    public long getLastCursor() {
+        return repository.findLastId();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ChangeLog> getChangesAfter(long since, int limit) {
+        List<ChangeLog> changes = repository.findChangesAfter(since, PageRequest.of(0, limit));
+        Instant settledBefore = Instant.now().minus(settleWindow);
+        for (int i = 0; i < changes.size(); i++) {
+            if (!changes.get(i).getChangedAt().isBefore(settledBefore)) {
+                // everything from here on may still have a lower id committing behind it
+                return changes.subList(0, i);
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,11 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.Customer;
+
+import java.util.Optional;
+
+public interface CustomerService {
+    Customer getOrCreate(String name, String email);
+
+    Optional<Customer> getById(Long id);
+}
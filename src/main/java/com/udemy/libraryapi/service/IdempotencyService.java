@@ -0,0 +1,79 @@
+package com.udemy.libraryapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.udemy.libraryapi.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of a request by its client supplied idempotency key, so a retried
+ * request gets the original result back instead of running again. Concurrent requests with
+ * the same key wait for the first one. Failed requests are not remembered and can be retried.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final BusinessException KEY_REUSED =
+            new BusinessException("Idempotency-Key already used for a different request");
+
+    private final Cache<String, StoredResult> results;
+
+    public IdempotencyService(@Value("${application.idempotency.max-keys:10000}") long maxKeys,
+                              @Value("${application.idempotency.ttl-minutes:1440}") long ttlMinutes) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    /**
+     * Reserves the key with a pending result before running the action, so the action runs outside
+     * the cache's own locking and concurrent requests with the same key wait on the pending result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String fingerprint, Supplier<T> action) {
+        while (true) {
+            StoredResult reserved = new StoredResult(fingerprint);
+            StoredResult stored = results.asMap().putIfAbsent(key, reserved);
+            if (stored == null) {
+                return run(key, reserved, action);
+            }
+            if (!stored.fingerprint.equals(fingerprint)) {
+                throw KEY_REUSED;
+            }
+            try {
+                return (T) stored.result.join();
+            } catch (CompletionException e) {
+                // the first request failed and released the key, so this one runs it again
+            }
+        }
+    }
+
+    private <T> T run(String key, StoredResult reserved, Supplier<T> action) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            results.asMap().remove(key, reserved);
+            reserved.result.completeExceptionally(e);
+            throw e;
+        }
+        reserved.result.complete(result);
+        return result;
+    }
+
+    private static class StoredResult {
+        private final String fingerprint;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private StoredResult(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.JobLock;
+import com.udemy.libraryapi.model.repository.JobLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Lets a scheduled job run on only one replica at a time, through a lease row per job in the
+ * job_lock table. The lease is held for at most {@code lockAtMost}, so a crashed node cannot
+ * block the job forever, and at least {@code lockAtLeast}, so a replica whose clock fires a
+ * little later does not run the job again right after the first one finished.
+ */
+@Slf4j
+@Service
+public class JobLockService {
+
+    private final JobLockRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner;
+
+    public JobLockService(JobLockRepository repository, TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    public boolean runLocked(String name, Duration lockAtMost, Duration lockAtLeast, Runnable task) {
+        Instant lockedAt = Instant.now();
+        if (!tryLock(name, lockedAt, lockedAt.plus(lockAtMost))) {
+            log.debug("skipping job {}, locked by another node", name);
+            return false;
+        }
+        try {
+            task.run();
+        } finally {
+            Instant now = Instant.now();
+            Instant earliestRelease = lockedAt.plus(lockAtLeast);
+            Instant lockedUntil = earliestRelease.isAfter(now) ? earliestRelease : now;
+            transactionTemplate.execute(status -> repository.release(name, owner, lockedUntil));
+        }
+        return true;
+    }
+
+    private boolean tryLock(String name, Instant now, Instant lockedUntil) {
+        Integer acquired = transactionTemplate.execute(status -> repository.acquire(name, owner, now, lockedUntil));
+        if (acquired != null && acquired > 0) {
+            return true;
+        }
+        // first run of this job anywhere: create the row, racing replicas collide on the primary key
+        try {
+            Boolean created = transactionTemplate.execute(status -> {
+                if (repository.existsById(name)) {
+                    return false;
+                }
+                repository.saveAndFlush(JobLock.builder()
+                        .name(name)
+                        .lockedAt(now)
+                        .lockedUntil(lockedUntil)
+                        .lockedBy(owner)
+                        .build());
+                return true;
+            });
+            return Boolean.TRUE.equals(created);
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
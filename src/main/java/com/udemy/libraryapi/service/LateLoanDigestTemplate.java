@@ -0,0 +1,65 @@
+package com.udemy.libraryapi.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The late loan digest sent to a customer. The template is split into literal text and
+ * {@code {customer}}, {@code {count}} and {@code {titles}} placeholders once at startup,
+ * so rendering a digest is only appending the parts.
+ */
+@Component
+public class LateLoanDigestTemplate {
+
+    private enum Placeholder { CUSTOMER, COUNT, TITLES }
+
+    private final List<Object> parts = new ArrayList<>();
+
+    public LateLoanDigestTemplate(@Value("${application.mail.lateloans.template}") String template) {
+        int from = 0;
+        int open;
+        while ((open = template.indexOf('{', from)) >= 0) {
+            int close = template.indexOf('}', open);
+            Placeholder placeholder = close < 0 ? null : placeholderOf(template.substring(open + 1, close));
+            if (placeholder == null) {
+                parts.add(template.substring(from, open + 1));
+                from = open + 1;
+                continue;
+            }
+            parts.add(template.substring(from, open));
+            parts.add(placeholder);
+            from = close + 1;
+        }
+        parts.add(template.substring(from));
+    }
+
+    public String render(String customer, List<String> titles) {
+        StringBuilder text = new StringBuilder();
+        for (Object part : parts) {
+            if (part == Placeholder.CUSTOMER) {
+                text.append(customer);
+            } else if (part == Placeholder.COUNT) {
+                text.append(titles.size());
+            } else if (part == Placeholder.TITLES) {
+                for (String title : titles) {
+                    text.append("- ").append(title).append('\n');
+                }
+            } else {
+                text.append((String) part);
+            }
+        }
+        return text.toString();
+    }
+
+    private static Placeholder placeholderOf(String name) {
+        for (Placeholder placeholder : Placeholder.values()) {
+            if (placeholder.name().equalsIgnoreCase(name)) {
+                return placeholder;
+            }
+        }
+        return null;
+    }
+}
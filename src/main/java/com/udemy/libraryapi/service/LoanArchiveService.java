@@ -0,0 +1,79 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.domain.entity.LoanArchive;
+import com.udemy.libraryapi.model.repository.LoanArchiveRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+public class LoanArchiveService {
+
+    @Value("${application.loan.archive.after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${application.loan.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${application.loan.archive.lock-at-most-minutes:120}")
+    private long lockAtMostMinutes;
+
+    @Value("${application.loan.archive.lock-at-least-minutes:5}")
+    private long lockAtLeastMinutes;
+
+    private final LoanRepository loanRepository;
+
+    private final LoanArchiveRepository archiveRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JobLockService jobLockService;
+
+    @Scheduled(cron = "${application.loan.archive.cron:0 30 0 * * ?}")
+    public void archiveReturnedLoans(){
+        jobLockService.runLocked("archive-returned-loans", Duration.ofMinutes(lockAtMostMinutes),
+                Duration.ofMinutes(lockAtLeastMinutes), this::archive);
+    }
+
+    private void archive(){
+        LocalDate returnedBefore = LocalDate.now().minusDays(archiveAfterDays);
+        long archived = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> moveBatch(returnedBefore));
+            archived += moved;
+        } while (moved == batchSize);
+
+        log.info("archived {} loans returned before {}", archived, returnedBefore);
+    }
+
+    private int moveBatch(LocalDate returnedBefore){
+        List<Loan> loans = loanRepository.findReturnedBefore(returnedBefore, PageRequest.of(0, batchSize));
+        if(loans.isEmpty()){
+            return 0;
+        }
+
+        LocalDate today = LocalDate.now();
+        archiveRepository.saveAll(loans.stream()
+                .map(loan -> LoanArchive.of(loan, today))
+                .collect(Collectors.toList()));
+        loanRepository.deleteAllInBatch(loans);
+
+        return loans.size();
+    }
+}
@@ -3,12 +3,16 @@ package com.udemy.libraryapi.service;
 import com.udemy.libraryapi.api.dto.LoanFilterDto;
 import com.udemy.libraryapi.api.resource.BookController;
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface LoanService {
     Loan save(Loan loan);
@@ -17,9 +21,19 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
+    boolean returnLoan(Long id, Boolean returned);
+
     Page<Loan> find(LoanFilterDto filterDTO, Pageable page);
 
-    Page<Loan> getLoansByBook(Book book, Pageable page);
+    Page<Loan> getLoansByBook(Book book, Pageable page, boolean history);
+
+    Page<Loan> getLoansByCustomer(Customer customer, Pageable page, boolean history);
 
     List<Loan> getAllLateLoans();
+
+    List<Loan> getLoansToNotify(LocalDate lateSince, LocalDate today, int reminderDays);
+
+    void markNotified(Collection<Long> loanIds, LocalDate notifiedDate);
+
+    Set<Long> getLoanedBookIds(Collection<Long> bookIds);
 }
@@ -0,0 +1,169 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import com.udemy.libraryapi.domain.event.LoanOverdueEvent;
+import com.udemy.libraryapi.model.repository.LoanRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository.OpenLoan;
+import com.udemy.libraryapi.service.impl.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes a {@link LoanOverdueEvent} as soon as an open loan passes its due date, instead of
+ * finding late loans with a daily scan. Open loans are loaded into a timing wheel at startup and
+ * kept in sync by following the change feed, so checkouts and returns made on any replica
+ * reschedule or cancel their loan within one sync interval.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class OverdueLoanMonitor {
+
+    private final LoanRepository loanRepository;
+    private final ChangeLogService changeLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HierarchicalTimingWheel<Long> wheel;
+    private final ScheduledExecutorService scheduler;
+    private final Counter overdue;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final long tickMillis;
+    private final long syncIntervalMillis;
+    private final int batchSize;
+    private final int defaultLoanDays;
+
+    private long cursor;
+
+    public OverdueLoanMonitor(LoanRepository loanRepository,
+                              ChangeLogService changeLogService,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${application.loan.overdue.tick-millis:1000}") long tickMillis,
+                              @Value("${application.loan.overdue.wheel-size:60}") int wheelSize,
+                              @Value("${application.loan.overdue.sync-interval-ms:5000}") long syncIntervalMillis,
+                              @Value("${application.loan.overdue.batch-size:1000}") int batchSize,
+                              @Value("${application.loan.default-days:4}") int defaultLoanDays) {
+        this.loanRepository = loanRepository;
+        this.changeLogService = changeLogService;
+        this.eventPublisher = eventPublisher;
+        this.tickMillis = tickMillis;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.batchSize = batchSize;
+        this.defaultLoanDays = defaultLoanDays;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("overdue-loans-"));
+        this.overdue = meterRegistry.counter("library.loans.overdue");
+        Gauge.builder("library.loans.overdue.scheduled", wheel, HierarchicalTimingWheel::size)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // take the cursor first, so loans changed while loading are picked up by the next sync
+        cursor = changeLogService.getLastCursor();
+        int loaded = load();
+        log.info("tracking {} open loans for overdue detection", loaded);
+
+        scheduler.scheduleAtFixedRate(() -> guarded(this::tick), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> guarded(this::sync), syncIntervalMillis, syncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private int load() {
+        long afterId = 0;
+        int loaded = 0;
+        List<OpenLoan> loans;
+        do {
+            loans = loanRepository.findOpenLoansAfter(afterId, PageRequest.of(0, batchSize));
+            for (OpenLoan loan : loans) {
+                // loans already late at startup became overdue before this node was watching
+                if (wheel.schedule(loan.getId(), deadlineOf(loan))) {
+                    loaded++;
+                }
+                afterId = loan.getId();
+            }
+        } while (loans.size() == batchSize);
+        return loaded;
+    }
+
+    void tick() {
+        for (Long loanId : wheel.advance(System.currentTimeMillis())) {
+            fire(loanId);
+        }
+    }
+
+    void sync() {
+        List<ChangeLog> changes;
+        do {
+            changes = changeLogService.getChangesAfter(cursor, batchSize);
+            Set<Long> loanIds = changes.stream()
+                    .filter(change -> change.getEntityType() == EntityType.LOAN)
+                    .map(ChangeLog::getEntityId)
+                    .collect(Collectors.toSet());
+            if (!loanIds.isEmpty()) {
+                refresh(loanIds);
+            }
+            if (!changes.isEmpty()) {
+                cursor = changes.get(changes.size() - 1).getId();
+            }
+        } while (changes.size() == batchSize);
+    }
+
+    private void refresh(Set<Long> loanIds) {
+        Set<Long> closed = new HashSet<>(loanIds);
+        for (OpenLoan loan : loanRepository.findOpenLoansByIdIn(loanIds)) {
+            closed.remove(loan.getId());
+            if (!wheel.schedule(loan.getId(), deadlineOf(loan))) {
+                fire(loan.getId());
+            }
+        }
+        closed.forEach(wheel::cancel);
+    }
+
+    private long deadlineOf(OpenLoan loan) {
+        LocalDate dueDate = Loan.effectiveDueDate(loan.getLoanDate(), loan.getDueDate(), defaultLoanDays);
+        // late from the first moment after the due date
+        return dueDate.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private void fire(Long loanId) {
+        overdue.increment();
+        eventPublisher.publishEvent(new LoanOverdueEvent(loanId));
+    }
+
+    private void guarded(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("overdue loan monitor failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
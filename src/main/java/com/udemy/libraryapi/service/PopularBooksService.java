@@ -0,0 +1,181 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.BookPopularitySnapshot;
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import com.udemy.libraryapi.model.repository.BookPopularitySnapshotRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository.LoanedBook;
+import com.udemy.libraryapi.service.impl.SpaceSavingSketch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Counts checkouts per book in one {@link SpaceSavingSketch} per day, so the most borrowed
+ * books of the last days come from merging a few small sketches instead of grouping the loan
+ * table. Days older than the largest window fall off. Loans are read from the change feed, so
+ * every replica counts the checkouts of all of them, and the sketches are snapshotted together
+ * with their feed position so a restart resumes counting where the snapshot stopped.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class PopularBooksService {
+
+    private final LoanRepository loanRepository;
+    private final ChangeLogService changeLogService;
+    private final BookPopularitySnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int capacity;
+    private final int maxWindowDays;
+    private final int batchSize;
+
+    private final NavigableMap<LocalDate, DayCounts> days = new TreeMap<>();
+    private long cursor;
+    private boolean started;
+
+    public PopularBooksService(LoanRepository loanRepository,
+                               ChangeLogService changeLogService,
+                               BookPopularitySnapshotRepository snapshotRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${application.book.popular.capacity:1000}") int capacity,
+                               @Value("${application.book.popular.max-window-days:30}") int maxWindowDays,
+                               @Value("${application.book.popular.batch-size:1000}") int batchSize) {
+        this.loanRepository = loanRepository;
+        this.changeLogService = changeLogService;
+        this.snapshotRepository = snapshotRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+        this.maxWindowDays = maxWindowDays;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        List<BookPopularitySnapshot> snapshots = snapshotRepository.findByDayGreaterThanEqual(firstDay());
+        if (snapshots.isEmpty()) {
+            cursor = changeLogService.getLastCursor();
+        } else {
+            // replicas snapshot at slightly different positions, resume from the oldest one
+            cursor = Long.MAX_VALUE;
+            for (BookPopularitySnapshot snapshot : snapshots) {
+                days.put(snapshot.getDay(), new DayCounts(
+                        SpaceSavingSketch.decode(capacity, snapshot.getCounters()), snapshot.getCursor()));
+                cursor = Math.min(cursor, snapshot.getCursor());
+            }
+        }
+        started = true;
+        log.info("counting popular books from change {} with {} days restored", cursor, snapshots.size());
+    }
+
+    public synchronized List<SpaceSavingSketch.Counter> getMostBorrowed(int windowDays, int limit) {
+        LocalDate from = LocalDate.now().minusDays(windowDays - 1L);
+        List<SpaceSavingSketch> sketches = new ArrayList<>();
+        days.tailMap(from, true).values().forEach(day -> sketches.add(day.sketch));
+        return SpaceSavingSketch.merge(capacity, sketches).top(limit);
+    }
+
+    public int getMaxWindowDays() {
+        return maxWindowDays;
+    }
+
+    @Scheduled(fixedDelayString = "${application.book.popular.sync-interval-ms:5000}")
+    public synchronized void sync() {
+        if (!started) {
+            return;
+        }
+        List<ChangeLog> changes;
+        do {
+            changes = changeLogService.getChangesAfter(cursor, batchSize);
+            Map<Long, Long> createdLoans = new HashMap<>();
+            for (ChangeLog change : changes) {
+                if (change.getEntityType() == EntityType.LOAN && change.getAction() == Action.CREATED) {
+                    createdLoans.put(change.getEntityId(), change.getId());
+                }
+            }
+            if (!createdLoans.isEmpty()) {
+                count(createdLoans);
+            }
+            if (!changes.isEmpty()) {
+                cursor = changes.get(changes.size() - 1).getId();
+            }
+        } while (changes.size() == batchSize);
+        days.headMap(firstDay(), false).clear();
+    }
+
+    private void count(Map<Long, Long> changeByLoan) {
+        LocalDate firstDay = firstDay();
+        for (LoanedBook loan : loanRepository.findLoanedBooksByIdIn(changeByLoan.keySet())) {
+            if (loan.getLoanDate() == null || loan.getLoanDate().isBefore(firstDay)) {
+                continue;
+            }
+            DayCounts day = days.computeIfAbsent(loan.getLoanDate(),
+                    date -> new DayCounts(new SpaceSavingSketch(capacity), 0));
+            // a restored day may already include this loan
+            if (changeByLoan.get(loan.getId()) > day.cursor) {
+                day.sketch.add(loan.getBookId());
+                day.dirty = true;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.book.popular.snapshot-interval-ms:60000}")
+    public synchronized void snapshot() {
+        if (!started) {
+            return;
+        }
+        List<BookPopularitySnapshot> snapshots = new ArrayList<>();
+        Instant now = Instant.now();
+        days.forEach((date, day) -> {
+            day.cursor = Math.max(day.cursor, cursor);
+            if (day.dirty) {
+                snapshots.add(BookPopularitySnapshot.builder()
+                        .day(date)
+                        .cursor(day.cursor)
+                        .counters(day.sketch.encode())
+                        .updatedAt(now)
+                        .build());
+                day.dirty = false;
+            }
+        });
+        long snapshotCursor = cursor;
+        transactionTemplate.execute(status -> {
+            snapshotRepository.saveAll(snapshots);
+            // unchanged days are complete up to the cursor too, keeps the restart replay short
+            snapshotRepository.advanceCursor(snapshotCursor);
+            return snapshotRepository.deleteByDayBefore(firstDay());
+        });
+    }
+
+    private LocalDate firstDay() {
+        return LocalDate.now().minusDays(maxWindowDays - 1L);
+    }
+
+    private static class DayCounts {
+        private final SpaceSavingSketch sketch;
+        private long cursor;
+        private boolean dirty;
+
+        private DayCounts(SpaceSavingSketch sketch, long cursor) {
+            this.sketch = sketch;
+            this.cursor = cursor;
+        }
+    }
+}
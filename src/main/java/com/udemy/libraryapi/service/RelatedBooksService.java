@@ -0,0 +1,130 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import com.udemy.libraryapi.model.repository.LoanArchiveRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository.LoanedBook;
+import com.udemy.libraryapi.service.impl.CoBorrowIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Serves "customers who borrowed this also borrowed" from an in-memory {@link CoBorrowIndex}.
+ * The index is rebuilt from the whole loan history, archive included, on the first sync after startup
+ * and nightly, which also drops whatever pruning lost, and follows the change feed for new loans in between.
+ */
+@Slf4j
+@Service
+@Lazy(false)
+public class RelatedBooksService {
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository archiveRepository;
+    private final ChangeLogService changeLogService;
+
+    private final int maxHistory;
+    private final int maxNeighbours;
+    private final int topK;
+    private final int batchSize;
+
+    private volatile CoBorrowIndex<Long> index;
+    private long cursor;
+    private long rebuiltUpToLoanId;
+
+    public RelatedBooksService(LoanRepository loanRepository,
+                               LoanArchiveRepository archiveRepository,
+                               ChangeLogService changeLogService,
+                               @Value("${application.book.related.max-history:50}") int maxHistory,
+                               @Value("${application.book.related.max-neighbours:200}") int maxNeighbours,
+                               @Value("${application.book.related.top-k:20}") int topK,
+                               @Value("${application.book.related.batch-size:1000}") int batchSize) {
+        this.loanRepository = loanRepository;
+        this.archiveRepository = archiveRepository;
+        this.changeLogService = changeLogService;
+        this.maxHistory = maxHistory;
+        this.maxNeighbours = maxNeighbours;
+        this.topK = topK;
+        this.batchSize = batchSize;
+    }
+
+    public List<CoBorrowIndex.Related> getRelated(long bookId, int limit) {
+        CoBorrowIndex<Long> current = index;
+        return current == null ? Collections.emptyList() : current.getRelated(bookId, limit);
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    @Scheduled(cron = "${application.book.related.rebuild-cron:0 0 3 * * ?}")
+    public synchronized void rebuild() {
+        long feedCursor = changeLogService.getLastCursor();
+        CoBorrowIndex<Long> rebuilt = new CoBorrowIndex<>(maxHistory, maxNeighbours, topK);
+
+        // archived loans are the older ones, so each customer's history stays in loan order
+        load(rebuilt, archiveRepository::findLoanedBooksAfter);
+        long lastLoanId = load(rebuilt, loanRepository::findLoanedBooksAfter);
+        rebuilt.refreshTopNeighbours();
+
+        index = rebuilt;
+        cursor = feedCursor;
+        rebuiltUpToLoanId = lastLoanId;
+        log.info("rebuilt related books index up to loan {}", lastLoanId);
+    }
+
+    @Scheduled(fixedDelayString = "${application.book.related.sync-interval-ms:5000}")
+    public synchronized void sync() {
+        CoBorrowIndex<Long> current = index;
+        if (current == null) {
+            // the first run builds the index off the startup path; lookups answer empty until then
+            rebuild();
+            return;
+        }
+        List<ChangeLog> changes;
+        do {
+            changes = changeLogService.getChangesAfter(cursor, batchSize);
+            Set<Long> createdLoans = changes.stream()
+                    .filter(change -> change.getEntityType() == EntityType.LOAN && change.getAction() == Action.CREATED)
+                    .map(ChangeLog::getEntityId)
+                    // the rebuild already read these
+                    .filter(loanId -> loanId > rebuiltUpToLoanId)
+                    .collect(Collectors.toSet());
+            if (!createdLoans.isEmpty()) {
+                List<LoanedBook> loans = new ArrayList<>(loanRepository.findLoanedBooksByIdIn(createdLoans));
+                loans.sort(Comparator.comparing(LoanedBook::getId));
+                loans.forEach(loan -> current.addLoan(loan.getCustomerId(), loan.getBookId()));
+            }
+            if (!changes.isEmpty()) {
+                cursor = changes.get(changes.size() - 1).getId();
+            }
+        } while (changes.size() == batchSize);
+        current.refreshTopNeighbours();
+    }
+
+    private long load(CoBorrowIndex<Long> target, BiFunction<Long, PageRequest, List<LoanedBook>> query) {
+        long afterId = 0;
+        List<LoanedBook> loans;
+        do {
+            loans = query.apply(afterId, PageRequest.of(0, batchSize));
+            for (LoanedBook loan : loans) {
+                target.addLoan(loan.getCustomerId(), loan.getBookId());
+                afterId = loan.getId();
+            }
+        } while (loans.size() == batchSize);
+        return afterId;
+    }
+}
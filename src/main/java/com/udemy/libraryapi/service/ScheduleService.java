@@ -1,35 +1,113 @@
 package com.udemy.libraryapi.service;
 
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.domain.entity.JobWatermark;
 import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.model.repository.JobWatermarkRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.mail.MailException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
+@Lazy(false)
 @RequiredArgsConstructor
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
-    @Value("&{application.mail.lateloans.message}")
-    private String message;
+    private static final String LATE_LOANS_JOB = "send-late-loan-emails";
+    // before the first run every late loan not yet notified is new
+    private static final LocalDate FIRST_RUN_WATERMARK = LocalDate.of(1970, 1, 1);
+
+    @Value("${application.mail.lateloans.reminder-days:7}")
+    private int reminderDays;
+
+    @Value("${application.mail.lateloans.lock-at-most-minutes:30}")
+    private long lockAtMostMinutes;
+
+    @Value("${application.mail.lateloans.lock-at-least-minutes:5}")
+    private long lockAtLeastMinutes;
+
+    @Value("${application.loan.default-days:4}")
+    private int defaultLoanDays;
 
     private final LoanService loanService;
 
     private final EmailService emailService;
 
+    private final JobLockService jobLockService;
+
+    private final JobWatermarkRepository watermarkRepository;
+
+    private final LateLoanDigestTemplate digestTemplate;
+
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendEmailToLateLoans(){
-        List<Loan> allLateLoans =loanService.getAllLateLoans();
-        List<String> emails = allLateLoans
+        jobLockService.runLocked(LATE_LOANS_JOB, Duration.ofMinutes(lockAtMostMinutes),
+                Duration.ofMinutes(lockAtLeastMinutes), this::notifyLateLoans);
+    }
+
+    void notifyLateLoans(){
+        LocalDate today = LocalDate.now();
+        LocalDate lateSince = watermarkRepository.findById(LATE_LOANS_JOB)
+                .map(JobWatermark::getWatermark)
+                .orElse(FIRST_RUN_WATERMARK);
+
+        Map<Long, List<Loan>> loansByCustomer = loanService.getLoansToNotify(lateSince, today, reminderDays)
                 .stream()
-                .map(loan -> loan.getCustomerEmail())
-                .collect(Collectors.toList());
+                .filter(loan -> loan.getCustomer() != null && StringUtils.hasText(loan.getCustomer().getEmail()))
+                .collect(Collectors.groupingBy(loan -> loan.getCustomer().getId(),
+                        LinkedHashMap::new, Collectors.toList()));
 
+        List<Long> notified = new ArrayList<>();
+        LocalDate watermark = today;
+        for (List<Loan> loans : loansByCustomer.values()) {
+            if(sendDigest(loans.get(0).getCustomer(), loans)){
+                loans.forEach(loan -> notified.add(loan.getId()));
+                continue;
+            }
+            // keep failed loans inside the next run's window
+            for (Loan loan : loans) {
+                LocalDate dueDate = loan.effectiveDueDate(defaultLoanDays);
+                if(loan.getLastNotifiedDate() == null && dueDate.isBefore(watermark)){
+                    watermark = dueDate;
+                }
+            }
+        }
+        loanService.markNotified(notified, today);
+        log.info("sent late loan digests to {} customers for {} loans", loansByCustomer.size(), notified.size());
 
-        emailService.sendMails(message, emails);
+        watermarkRepository.save(JobWatermark.builder()
+                .name(LATE_LOANS_JOB)
+                .watermark(watermark)
+                .updatedAt(Instant.now())
+                .build());
+    }
+
+    private boolean sendDigest(Customer customer, List<Loan> loans){
+        List<String> titles = loans.stream()
+                .map(loan -> loan.getBook().getTitle())
+                .collect(Collectors.toList());
+        try {
+            emailService.sendMail(digestTemplate.render(customer.getName(), titles), customer.getEmail());
+            return true;
+        } catch (MailException e) {
+            log.warn("could not send late loan digest to {}: {}", customer.getEmail(), e.getMessage());
+            return false;
+        }
     }
 }
@@ -1,56 +1,113 @@
 package com.udemy.libraryapi.service.impl;
 
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
 import com.udemy.libraryapi.exception.BusinessException;
 import com.udemy.libraryapi.model.repository.BookRepository;
 import com.udemy.libraryapi.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class BookServiceImpl implements BookService {
 
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+    private static final BusinessException DUPLICATED_ISBN = new BusinessException("Isbn já cadastrado.");
+
     private BookRepository repository;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate readOnlyTransaction;
+    private SingleFlight<Long, Optional<Book>> byIdFlight;
+    private SingleFlight<String, Optional<Book>> byIsbnFlight;
 
-    public BookServiceImpl(BookRepository repository){
+    public BookServiceImpl(BookRepository repository, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry, ApplicationEventPublisher eventPublisher){
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.byIdFlight = new SingleFlight<>(
+                meterRegistry.counter("library.book.lookup.coalesced", "lookup", "id"), BookServiceImpl::detachedCopy);
+        this.byIsbnFlight = new SingleFlight<>(
+                meterRegistry.counter("library.book.lookup.coalesced", "lookup", "isbn"), BookServiceImpl::detachedCopy);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheResolver = "bookSearchCacheResolver", allEntries = true)
     public Book save(Book book) {
         if(repository.existsByIsbn(book.getIsbn())){
-            throw  new BusinessException("Isbn já cadastrado.");
+            throw DUPLICATED_ISBN;
         }
-        return repository.save(book);
+        Book saved = repository.save(book);
+        publish(Action.CREATED, saved);
+        return saved;
     }
 
+    // lookups open their transaction inside the flight, so coalesced callers never hold a connection
     @Override
     public Optional<Book> getById(Long id){
-        return repository.findById(id);
+        return byIdFlight.execute(id, () -> readOnlyTransaction.execute(status -> repository.findById(id)));
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheResolver = "bookSearchCacheResolver", allEntries = true)
     public void delete(Book book) {
         if(book == null || book.getId() == null) {
             throw  new IllegalArgumentException("Book id can't be null");
         }
         repository.delete(book);
+        publish(Action.DELETED, book);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheResolver = "bookSearchCacheResolver", allEntries = true)
     public Book update(Book book) {
         if(book == null || book.getId() == null) {
             throw  new IllegalArgumentException("Book id can't be null");
         }
-        return repository.save(book);
+        Book updated = repository.save(book);
+        publish(Action.UPDATED, updated);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheResolver = "bookSearchCacheResolver", allEntries = true)
+    public Optional<Book> updateBook(Long id, Book book) {
+        return repository.findById(id)
+                .map(found -> {
+                    found.setAuthor(book.getAuthor());
+                    found.setTitle(book.getTitle());
+                    publish(Action.UPDATED, found);
+                    return found;
+                });
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheResolver = "bookSearchCacheResolver", keyGenerator = "bookSearchKeyGenerator")
     public Page<Book> find(Book filter, Pageable pageRequest) {
         Example<Book> example =  Example.of(filter,
                 ExampleMatcher
@@ -64,8 +121,43 @@ public class BookServiceImpl implements BookService {
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        return byIsbnFlight.execute(isbn, () -> readOnlyTransaction.execute(status -> repository.findByIsbn(isbn)));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> getByIds(Collection<Long> ids) {
+        return findInChunks(ids, repository::findAllById);
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> getByIsbns(Collection<String> isbns) {
+        return findInChunks(isbns, repository::findByIsbnIn);
+    }
+
+    // keeps each IN (...) list at a size every database accepts and plans well
+    private <T> List<Book> findInChunks(Collection<T> keys, Function<List<T>, List<Book>> query) {
+        List<T> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<Book> books = new ArrayList<>();
+        for (int from = 0; from < distinctKeys.size(); from += LOOKUP_CHUNK_SIZE) {
+            int to = Math.min(distinctKeys.size(), from + LOOKUP_CHUNK_SIZE);
+            books.addAll(query.apply(distinctKeys.subList(from, to)));
+        }
+        return books;
+    }
+
+    // coalesced callers run in other threads and sessions, so they must not share the leader's managed entity
+    private static Optional<Book> detachedCopy(Optional<Book> book) {
+        return book.map(found -> Book.builder()
+                .id(found.getId())
+                .title(found.getTitle())
+                .author(found.getAuthor())
+                .isbn(found.getIsbn())
+                .build());
+    }
+
+    private void publish(Action action, Book book) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, action, book.getId(), book));
+    }
 }
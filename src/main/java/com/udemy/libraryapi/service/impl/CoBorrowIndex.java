@@ -0,0 +1,115 @@
+package com.udemy.libraryapi.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts how many times two books were borrowed by the same customer. Every loan pairs its
+ * book with the customer's recent books, so an update costs O(history) and never scans the
+ * loans. Memory stays bounded: only the last {@code maxHistory} books of a customer are kept,
+ * and a book's neighbour counters are pruned back to {@code maxNeighbours} whenever they grow
+ * to twice that. The top neighbours of the books touched by a batch are precomputed by
+ * {@link #refreshTopNeighbours()}, and reads only ever see those, so they never wait on writers.
+ */
+public class CoBorrowIndex<C> {
+
+    private final int maxHistory;
+    private final int maxNeighbours;
+    private final int topK;
+
+    private final Map<C, long[]> histories = new HashMap<>();
+    private final Map<Long, LongLongHashMap> neighbours = new HashMap<>();
+    private final Set<Long> touched = new HashSet<>();
+    private final Map<Long, List<Related>> topNeighbours = new ConcurrentHashMap<>();
+
+    public CoBorrowIndex(int maxHistory, int maxNeighbours, int topK) {
+        this.maxHistory = maxHistory;
+        this.maxNeighbours = maxNeighbours;
+        this.topK = topK;
+    }
+
+    public synchronized void addLoan(C customer, long bookId) {
+        if (customer == null) {
+            return;
+        }
+        long[] history = histories.get(customer);
+        if (history == null) {
+            histories.put(customer, new long[]{bookId});
+            return;
+        }
+        for (long previous : history) {
+            if (previous == bookId) {
+                return;
+            }
+        }
+        for (long previous : history) {
+            increment(previous, bookId);
+            increment(bookId, previous);
+        }
+
+        // keeps the most recent books, oldest first
+        int keep = Math.min(history.length, maxHistory - 1);
+        long[] updated = new long[keep + 1];
+        System.arraycopy(history, history.length - keep, updated, 0, keep);
+        updated[keep] = bookId;
+        histories.put(customer, updated);
+    }
+
+    public synchronized void refreshTopNeighbours() {
+        for (Long bookId : touched) {
+            topNeighbours.put(bookId, computeTop(neighbours.get(bookId)));
+        }
+        touched.clear();
+    }
+
+    public List<Related> getRelated(long bookId, int limit) {
+        List<Related> top = topNeighbours.getOrDefault(bookId, Collections.emptyList());
+        return top.size() <= limit ? top : top.subList(0, limit);
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    private void increment(long bookId, long neighbour) {
+        LongLongHashMap counts = neighbours.computeIfAbsent(bookId, id -> new LongLongHashMap(16));
+        counts.addTo(neighbour, 1);
+        if (counts.size() >= maxNeighbours * 2) {
+            counts.retainLargest(maxNeighbours);
+        }
+        touched.add(bookId);
+    }
+
+    private List<Related> computeTop(LongLongHashMap counts) {
+        List<Related> all = new ArrayList<>(counts.size());
+        counts.forEach((neighbour, count) -> all.add(new Related(neighbour, count)));
+        all.sort((left, right) -> left.count != right.count
+                ? Long.compare(right.count, left.count)
+                : Long.compare(left.bookId, right.bookId));
+        return Collections.unmodifiableList(new ArrayList<>(all.subList(0, Math.min(topK, all.size()))));
+    }
+
+    public static class Related {
+        private final long bookId;
+        private final long count;
+
+        private Related(long bookId, long count) {
+            this.bookId = bookId;
+            this.count = count;
+        }
+
+        public long getBookId() {
+            return bookId;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
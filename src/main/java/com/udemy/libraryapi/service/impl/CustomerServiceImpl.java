@@ -0,0 +1,40 @@
+package com.udemy.libraryapi.service.impl;
+
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.model.repository.CustomerRepository;
+import com.udemy.libraryapi.service.CustomerService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Service
+public class CustomerServiceImpl implements CustomerService {
+
+    private CustomerRepository repository;
+
+    public CustomerServiceImpl(CustomerRepository repository){
+        this.repository = repository;
+    }
+
+    /**
+     * Customers are identified by their e-mail, compared trimmed and in lower case. Runs inside the
+     * caller's transaction, so the customer only exists if what it was created for commits too.
+     * A concurrent insert of the same e-mail fails on the unique key and is left to the caller to retry.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Customer getOrCreate(String name, String email) {
+        String normalizedEmail = email.trim().toLowerCase();
+        return repository.findByEmail(normalizedEmail)
+                .orElseGet(() -> repository.saveAndFlush(
+                        Customer.builder().name(name.trim()).email(normalizedEmail).build()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Customer> getById(Long id) {
+        return repository.findById(id);
+    }
+}
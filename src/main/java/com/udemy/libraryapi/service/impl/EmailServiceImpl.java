@@ -20,8 +20,15 @@ public class EmailServiceImpl implements EmailService {
 
     @Override
     public void sendMails(String message, List<String> emails) {
-        String[] to = emails.toArray(new String[emails.size()]);
+        send(message, emails.toArray(new String[emails.size()]));
+    }
+
+    @Override
+    public void sendMail(String message, String email) {
+        send(message, email);
+    }
 
+    private void send(String message, String... to) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
 
         mailMessage.setFrom(remetent);
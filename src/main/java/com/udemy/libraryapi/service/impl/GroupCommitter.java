@@ -0,0 +1,150 @@
+package com.udemy.libraryapi.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces writes from concurrent callers into batches applied by a single writer thread.
+ * A batch closes when it holds {@code maxBatchSize} items or {@code maxDelay} after its first
+ * item, whichever comes first, and is handed to the writer function as a whole, which is
+ * expected to apply it in one transaction. The future of every item completes only after that
+ * function returned, so a caller is never acknowledged for a write that could still be lost.
+ * When a batch throws, its items are written again one at a time, so a single bad item fails alone.
+ */
+public class GroupCommitter<T, R> {
+
+    private final BlockingQueue<Pending<T, R>> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Function<List<T>, List<R>> writer;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    public GroupCommitter(String name, int queueSize, int maxBatchSize, long maxDelayMillis,
+                          Function<List<T>, List<R>> writer) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.writer = writer;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the item, waiting for room when the writer is behind, and returns a future
+     * completed with the writer's result for it once its batch is committed.
+     */
+    public CompletableFuture<R> submit(T item) {
+        Pending<T, R> pending = new Pending<>(item);
+        try {
+            while (!queue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    return reject(pending);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+            return pending.future;
+        }
+        // closed while queueing: the writer and close() may both be past their last look at the queue
+        if (!running && queue.remove(pending)) {
+            return reject(pending);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Stops taking items and waits for the queued ones to be written. Whatever the writer
+     * could not reach in time is failed rather than left waiting.
+     */
+    public void close(long timeoutMillis) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMillis);
+        List<Pending<T, R>> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        leftovers.forEach(this::reject);
+    }
+
+    private CompletableFuture<R> reject(Pending<T, R> pending) {
+        pending.future.completeExceptionally(new RejectedExecutionException("group commit is closed"));
+        return pending.future;
+    }
+
+    private void run() {
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T, R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+            } catch (InterruptedException e) {
+                // the batch taken so far still gets written before leaving
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fill(List<Pending<T, R>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Pending<T, R>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        batch.forEach(pending -> items.add(pending.item));
+        try {
+            List<R> results = writer.apply(items);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // the batch was rolled back as a whole: write its items alone so only the failing ones fail
+            batch.forEach(pending -> write(Collections.singletonList(pending)));
+        } catch (Error e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    private static class Pending<T, R> {
+        private final T item;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Pending(T item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.udemy.libraryapi.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps keys by deadline in a hierarchy of timing wheels: the first level has {@code wheelSize}
+ * buckets of one tick each, and every further level, created on demand, has buckets as wide as
+ * the whole level below it. Scheduling and cancelling are O(1) and advancing the clock only
+ * touches the buckets that expire, so far away deadlines cost nothing until they come close.
+ * Keys expire within one tick of their deadline.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final Level root;
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.root = new Level(tickMillis, wheelSize, startMillis);
+    }
+
+    /**
+     * Schedules the key, replacing a previous deadline for it.
+     *
+     * @return false when the deadline has already passed, in which case nothing is scheduled
+     */
+    public synchronized boolean schedule(T key, long deadlineMillis) {
+        cancel(key);
+        Entry<T> entry = new Entry<>(key, deadlineMillis);
+        if (!root.add(entry)) {
+            return false;
+        }
+        entries.put(key, entry);
+        return true;
+    }
+
+    public synchronized boolean cancel(T key) {
+        Entry<T> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.bucket.remove(entry);
+        return true;
+    }
+
+    /**
+     * Moves the clock forward to {@code nowMillis}, returning the keys that expired on the way.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        while (root.currentTime + root.tickMillis <= nowMillis) {
+            root.currentTime += root.tickMillis;
+            reinsert(root.takeCurrentBucket(), expired);
+            // an upper level only turns when every level below it has completed a round
+            for (Level level = root.overflow; level != null; level = level.overflow) {
+                if (level.currentTime + level.tickMillis > root.currentTime) {
+                    break;
+                }
+                level.currentTime += level.tickMillis;
+                reinsert(level.takeCurrentBucket(), expired);
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void reinsert(List<Entry<T>> bucket, List<T> expired) {
+        for (Entry<T> entry : bucket) {
+            if (!root.add(entry)) {
+                entries.remove(entry.key);
+                expired.add(entry.key);
+            }
+        }
+    }
+
+    private class Level {
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long interval;
+        private final List<Set<Entry<T>>> buckets;
+        private long currentTime;
+        private Level overflow;
+
+        private Level(long tickMillis, int wheelSize, long startMillis) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.interval = tickMillis * wheelSize;
+            this.currentTime = startMillis - startMillis % tickMillis;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new HashSet<>());
+            }
+        }
+
+        private boolean add(Entry<T> entry) {
+            if (entry.deadline < currentTime + tickMillis) {
+                return false;
+            }
+            if (entry.deadline < currentTime + interval) {
+                Set<Entry<T>> bucket = buckets.get((int) ((entry.deadline / tickMillis) % wheelSize));
+                bucket.add(entry);
+                entry.bucket = bucket;
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, wheelSize, currentTime);
+            }
+            return overflow.add(entry);
+        }
+
+        private List<Entry<T>> takeCurrentBucket() {
+            Set<Entry<T>> bucket = buckets.get((int) ((currentTime / tickMillis) % wheelSize));
+            if (bucket.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<Entry<T>> taken = new ArrayList<>(bucket);
+            bucket.clear();
+            return taken;
+        }
+    }
+
+    private static class Entry<T> {
+        private final T key;
+        private final long deadline;
+        private Set<Entry<T>> bucket;
+
+        private Entry(T key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+}
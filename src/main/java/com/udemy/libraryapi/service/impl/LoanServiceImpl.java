@@ -2,59 +2,347 @@ package com.udemy.libraryapi.service.impl;
 
 import com.udemy.libraryapi.api.dto.LoanFilterDto;
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.domain.entity.LoanArchive;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
 import com.udemy.libraryapi.exception.BusinessException;
+import com.udemy.libraryapi.exception.ServiceUnavailableException;
+import com.udemy.libraryapi.model.repository.LoanArchiveRepository;
 import com.udemy.libraryapi.model.repository.LoanRepository;
+import com.udemy.libraryapi.model.repository.LoanSearchRepository;
+import com.udemy.libraryapi.service.CustomerService;
 import com.udemy.libraryapi.service.LoanService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    private static final int NOTIFY_CHUNK_SIZE = 500;
+    private static final BusinessException BOOK_ALREADY_LOANED = new BusinessException("Book already loaned");
+
+    @Value("${application.loan.return.write-behind.enabled:false}")
+    private boolean writeBehind;
+
+    @Value("${application.loan.return.write-behind.queue-size:10000}")
+    private int writeBehindQueueSize;
+
+    @Value("${application.loan.return.write-behind.max-batch-size:100}")
+    private int writeBehindMaxBatchSize;
+
+    @Value("${application.loan.return.write-behind.max-delay-ms:2}")
+    private long writeBehindMaxDelayMillis;
+
+    @Value("${application.loan.return.write-behind.timeout-ms:5000}")
+    private long writeBehindTimeoutMillis;
+
     private LoanRepository repository;
+    private LoanArchiveRepository archiveRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private CustomerService customerService;
+    private TransactionTemplate transaction;
+    private int defaultLoanDays;
+    private GroupCommitter<LoanReturn, Boolean> returns;
 
-    public LoanServiceImpl(LoanRepository repository){
+    public LoanServiceImpl(LoanRepository repository, LoanArchiveRepository archiveRepository,
+                           ApplicationEventPublisher eventPublisher, CustomerService customerService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${application.loan.default-days:4}") int defaultLoanDays){
         this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.eventPublisher = eventPublisher;
+        this.customerService = customerService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultLoanDays = defaultLoanDays;
+    }
+
+    @PostConstruct
+    public void start() {
+        if(writeBehind){
+            returns = new GroupCommitter<>("loan-return-writer", writeBehindQueueSize, writeBehindMaxBatchSize,
+                    writeBehindMaxDelayMillis, this::applyReturns);
+        }
     }
 
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(returns != null){
+            returns.close(5000);
+        }
+    }
+
+    /**
+     * A customer without an id is looked up or created by e-mail inside the loan's own transaction,
+     * so a rejected loan leaves no customer behind. When a concurrent loan creates the same customer
+     * first, the unique e-mail key fails this transaction and it runs once more, finding that customer.
+     */
     @Override
     public Loan save(Loan loan) {
+        Customer customer = loan.getCustomer();
+        try {
+            return transaction.execute(status -> insert(loan));
+        } catch (DataIntegrityViolationException e) {
+            if(customer == null || customer.getId() != null){
+                throw e;
+            }
+            loan.setId(null);
+            loan.setCustomer(customer);
+            return transaction.execute(status -> insert(loan));
+        }
+    }
+
+    private Loan insert(Loan loan) {
         if(repository.existsByBookAndNotReturned(loan.getBook())){
-            throw new BusinessException("Book already loaned");
+            throw BOOK_ALREADY_LOANED;
+        }
+        Customer customer = loan.getCustomer();
+        if(customer != null && customer.getId() == null){
+            loan.setCustomer(customerService.getOrCreate(customer.getName(), customer.getEmail()));
+        }
+        if(loan.getDueDate() == null){
+            LocalDate loanDate = loan.getLoanDate() != null ? loan.getLoanDate() : LocalDate.now();
+            loan.setDueDate(loanDate.plusDays(defaultLoanDays));
         }
-        return repository.save(loan);
+        Loan saved = repository.save(loan);
+        publish(Action.CREATED, saved.getId(), saved);
+        return saved;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Loan> getById(Long id) {
         return repository.findById(id);
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        if(Boolean.TRUE.equals(loan.getReturned()) && loan.getReturnDate() == null){
+            loan.setReturnDate(LocalDate.now());
+        }
+        Loan updated = repository.save(loan);
+        publish(Action.UPDATED, updated.getId(), updated);
+        return updated;
     }
 
+    /**
+     * With write-behind enabled the return joins the next group commit instead of opening
+     * its own transaction, and the caller waits for that commit, so availability reads made
+     * after the answer already see the book as returned.
+     */
     @Override
+    public boolean returnLoan(Long id, Boolean returned) {
+        LoanReturn loanReturn = new LoanReturn(id, returned);
+        if(returns == null){
+            return transaction.execute(status -> applyReturn(loanReturn));
+        }
+        try {
+            // a timed out return may still commit later, but the caller is not left waiting on it
+            return returns.submit(loanReturn).orTimeout(writeBehindTimeoutMillis, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            // not acknowledged in time, or the committer is shutting down: the caller may retry
+            if(e.getCause() instanceof TimeoutException || e.getCause() instanceof RejectedExecutionException){
+                throw ServiceUnavailableException.INSTANCE;
+            }
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private List<Boolean> applyReturns(List<LoanReturn> loanReturns) {
+        return transaction.execute(status -> {
+            List<Boolean> results = new ArrayList<>(loanReturns.size());
+            loanReturns.forEach(loanReturn -> results.add(applyReturn(loanReturn)));
+            return results;
+        });
+    }
+
+    private boolean applyReturn(LoanReturn loanReturn) {
+        Boolean returned = loanReturn.returned;
+        LocalDate returnDate = Boolean.TRUE.equals(returned) ? LocalDate.now() : null;
+        if(repository.updateReturned(loanReturn.id, returned, returnDate) == 0){
+            return false;
+        }
+        publish(Action.UPDATED, loanReturn.id, null);
+        return true;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDto filterDTO, Pageable page) {
-        return repository.findByBookIsbnOrCustomer(filterDTO.getIsbn(), filterDTO.getCustomer(), page);
+        Page<Loan> loans = search(repository, filterDTO, page);
+        if(!filterDTO.isHistory()){
+            return loans;
+        }
+        return appendArchive(loans, page, archivePage -> search(archiveRepository, filterDTO, archivePage));
+    }
+
+    /**
+     * Picks a dedicated query for the populated filter fields, so each one is an index seek
+     * on a loan column instead of an OR spanning the loan and book tables. With both fields set,
+     * the isbn and customer seeks run as separate subqueries and the database pages their union.
+     */
+    private static <T> Page<T> search(LoanSearchRepository<T> repository, LoanFilterDto filter, Pageable page) {
+        boolean byIsbn = StringUtils.hasText(filter.getIsbn());
+        boolean byCustomer = StringUtils.hasText(filter.getCustomer());
+        if(byIsbn && byCustomer){
+            return repository.findByBookIsbnOrCustomerName(filter.getIsbn(), filter.getCustomer(), page);
+        }
+        if(byIsbn){
+            return repository.findByBookIsbn(filter.getIsbn(), page);
+        }
+        if(byCustomer){
+            return repository.findByCustomerName(filter.getCustomer(), page);
+        }
+        return repository.findAll(page);
     }
 
     @Override
-    public Page<Loan> getLoansByBook(Book book, Pageable page) {
-        return repository.findByBook(book, page);
+    @Transactional(readOnly = true)
+    public Page<Loan> getLoansByBook(Book book, Pageable page, boolean history) {
+        Page<Loan> loans = repository.findByBook(book, page);
+        if(!history){
+            return loans;
+        }
+        return appendArchive(loans, page, archivePage -> archiveRepository.findByBook(book, archivePage));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Loan> getLoansByCustomer(Customer customer, Pageable page, boolean history) {
+        Page<Loan> loans = repository.findByCustomer(customer, page);
+        if(!history){
+            return loans;
+        }
+        return appendArchive(loans, page, archivePage -> archiveRepository.findByCustomer(customer, archivePage));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        LocalDate today = LocalDate.now();
+        return repository.findByDueDateLessThanAndNotReturned(today, today.minusDays(defaultLoanDays));
+    }
+
+    /**
+     * Selects only the loans whose due date passed since {@code lateSince} and were never
+     * notified, plus those whose last notice is {@code reminderDays} old, so a run reads what
+     * changed since the previous one instead of every open late loan.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Loan> getLoansToNotify(LocalDate lateSince, LocalDate today, int reminderDays) {
+        Map<Long, Loan> loans = new LinkedHashMap<>();
+        repository.findNewlyLate(lateSince, today, lateSince.minusDays(defaultLoanDays), today.minusDays(defaultLoanDays))
+                .forEach(loan -> loans.put(loan.getId(), loan));
+        repository.findDueForReminder(today.minusDays(reminderDays)).forEach(loan -> loans.putIfAbsent(loan.getId(), loan));
+        return new ArrayList<>(loans.values());
+    }
+
+    @Override
+    @Transactional
+    public void markNotified(Collection<Long> loanIds, LocalDate notifiedDate) {
+        List<Long> ids = new ArrayList<>(loanIds);
+        for(int from = 0; from < ids.size(); from += NOTIFY_CHUNK_SIZE){
+            repository.updateLastNotifiedDate(ids.subList(from, Math.min(ids.size(), from + NOTIFY_CHUNK_SIZE)),
+                    notifiedDate);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<Long> getLoanedBookIds(Collection<Long> bookIds) {
+        if(bookIds == null || bookIds.isEmpty()){
+            return Collections.emptySet();
+        }
+        return new HashSet<>(repository.findNotReturnedBookIds(bookIds));
+    }
+
+    private void publish(Action action, Long loanId, Loan loan) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.LOAN, action, loanId, loan));
+    }
+
+    /**
+     * Pages over the hot loans followed by the archived ones, as if both were a single table.
+     * The archive is only read for the part of the requested page the hot table can't fill.
+     */
+    private Page<Loan> appendArchive(Page<Loan> loans, Pageable page,
+                                     Function<Pageable, Page<LoanArchive>> archiveQuery) {
+        if(page.isUnpaged()){
+            List<Loan> content = new ArrayList<>(loans.getContent());
+            archiveQuery.apply(page).forEach(archived -> content.add(archived.toLoan()));
+            return new PageImpl<>(content, page, content.size());
+        }
+
+        long hotTotal = loans.getTotalElements();
+        int size = page.getPageSize();
+        int remaining = size - loans.getNumberOfElements();
+
+        if(remaining == 0){
+            long archiveTotal = archiveQuery.apply(PageRequest.of(0, 1, page.getSort())).getTotalElements();
+            return new PageImpl<>(loans.getContent(), page, hotTotal + archiveTotal);
+        }
+
+        long start = Math.max(0, page.getOffset() - hotTotal);
+        long end = start + remaining;
+        int firstPage = (int) (start / size);
+        int lastPage = (int) ((end - 1) / size);
+
+        Page<LoanArchive> archived = archiveQuery.apply(PageRequest.of(firstPage, size, page.getSort()));
+        List<LoanArchive> window = new ArrayList<>(archived.getContent());
+        if(lastPage != firstPage){
+            window.addAll(archiveQuery.apply(PageRequest.of(lastPage, size, page.getSort())).getContent());
+        }
+
+        int from = (int) Math.min(window.size(), start - (long) firstPage * size);
+        int to = (int) Math.min(window.size(), from + remaining);
+
+        List<Loan> content = new ArrayList<>(loans.getContent());
+        window.subList(from, to).forEach(archivedLoan -> content.add(archivedLoan.toLoan()));
+
+        return new PageImpl<>(content, page, hotTotal + archived.getTotalElements());
+    }
+
+    private static class LoanReturn {
+        private final Long id;
+        private final Boolean returned;
+
+        private LoanReturn(Long id, Boolean returned) {
+            this.id = id;
+            this.returned = returned;
+        }
     }
 }
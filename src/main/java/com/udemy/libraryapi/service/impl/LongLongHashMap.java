@@ -0,0 +1,132 @@
+package com.udemy.libraryapi.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from long to long without boxing, for counters kept per pair of ids.
+ * {@link Long#MIN_VALUE} marks free slots and cannot be used as a key. Not thread safe.
+ */
+public class LongLongHashMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1) << 1);
+        allocate(capacity);
+    }
+
+    public long addTo(long key, long delta) {
+        int slot = slotOf(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return delta;
+    }
+
+    public long get(long key) {
+        int slot = slotOf(key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Drops every entry but the {@code limit} with the largest values.
+     */
+    public void retainLargest(int limit) {
+        if (size <= limit) {
+            return;
+        }
+        long[] sorted = new long[size];
+        int next = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                sorted[next++] = values[i];
+            }
+        }
+        Arrays.sort(sorted);
+        long threshold = sorted[size - limit];
+        int ties = 0;
+        for (int i = size - limit; i < size && sorted[i] == threshold; i++) {
+            ties++;
+        }
+
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == FREE || oldValues[i] < threshold) {
+                continue;
+            }
+            if (oldValues[i] == threshold && ties-- <= 0) {
+                continue;
+            }
+            insert(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private int slotOf(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void insert(long key, long value) {
+        int slot = slotOf(key);
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,63 @@
+package com.udemy.libraryapi.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapses concurrent calls for the same key into a single execution: the first caller
+ * runs the loader and every caller arriving while it runs gets the same result. Mutable values,
+ * such as entities bound to the first caller's session, are passed on through {@code share}:
+ * it takes one snapshot in the first caller's thread and hands each follower its own copy of it.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    private final UnaryOperator<V> share;
+
+    public SingleFlight(Counter coalesced) {
+        this(coalesced, UnaryOperator.identity());
+    }
+
+    public SingleFlight(Counter coalesced, UnaryOperator<V> share) {
+        this.coalesced = coalesced;
+        this.share = share;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        try {
+            V value = loader.get();
+            flight.complete(share.apply(value));
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return share.apply(running.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.udemy.libraryapi.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy hitters sketch: counts at most {@code capacity} items, and a new item
+ * arriving when it is full takes over the smallest counter, inheriting its count as the error
+ * bound. Any item seen more often than total / capacity is guaranteed to be kept, with a count
+ * overestimated by at most its error. Not thread safe.
+ */
+public class SpaceSavingSketch {
+
+    private static final Comparator<Counter> BY_COUNT_DESC =
+            Comparator.comparingLong(Counter::getCount).reversed().thenComparingLong(Counter::getItem);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(long item) {
+        add(item, 1, 0);
+    }
+
+    private void add(long item, long count, long error) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += count;
+            counter.error += error;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(item, count, error));
+            return;
+        }
+        Counter smallest = null;
+        for (Counter candidate : counters.values()) {
+            if (smallest == null || candidate.count < smallest.count) {
+                smallest = candidate;
+            }
+        }
+        counters.remove(smallest.item);
+        counters.put(item, new Counter(item, smallest.count + count, smallest.count + error));
+    }
+
+    public List<Counter> top(int limit) {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort(BY_COUNT_DESC);
+        List<Counter> top = new ArrayList<>(Math.min(limit, sorted.size()));
+        for (Counter counter : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            top.add(new Counter(counter.item, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    /**
+     * Sums the sketches, keeping the {@code capacity} largest counters of the union.
+     */
+    public static SpaceSavingSketch merge(int capacity, Collection<SpaceSavingSketch> sketches) {
+        Map<Long, Counter> sums = new HashMap<>();
+        for (SpaceSavingSketch sketch : sketches) {
+            for (Counter counter : sketch.counters.values()) {
+                Counter sum = sums.computeIfAbsent(counter.item, item -> new Counter(item, 0, 0));
+                sum.count += counter.count;
+                sum.error += counter.error;
+            }
+        }
+        List<Counter> sorted = new ArrayList<>(sums.values());
+        sorted.sort(BY_COUNT_DESC);
+        SpaceSavingSketch merged = new SpaceSavingSketch(capacity);
+        for (Counter counter : sorted.subList(0, Math.min(capacity, sorted.size()))) {
+            merged.counters.put(counter.item, counter);
+        }
+        return merged;
+    }
+
+    /**
+     * Writes the counters as {@code item:count:error} separated by commas.
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder(counters.size() * 16);
+        for (Counter counter : counters.values()) {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(counter.item).append(':').append(counter.count).append(':').append(counter.error);
+        }
+        return encoded.toString();
+    }
+
+    public static SpaceSavingSketch decode(int capacity, String encoded) {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        if (encoded == null || encoded.isEmpty()) {
+            return sketch;
+        }
+        for (String counter : encoded.split(",")) {
+            String[] parts = counter.split(":");
+            sketch.add(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        }
+        return sketch;
+    }
+
+    public static class Counter {
+        private final long item;
+        private long count;
+        private long error;
+
+        private Counter(long item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getItem() {
+            return item;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
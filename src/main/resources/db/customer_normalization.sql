@@ -0,0 +1,69 @@
+-- Moves the free text customer columns of loan and loan_archive into the customer table.
+-- Not run by the application: apply it once, before deploying the version that maps
+-- Loan.customer to Customer, on databases that are not recreated by Hibernate.
+--
+-- Customers are deduplicated by e-mail, trimmed and in lower case, keeping the name of
+-- their most recent loan. Loans taken before the e-mail was stored are grouped by name
+-- into customers without e-mail.
+
+create table customer (
+    id bigint generated by default as identity primary key,
+    name varchar(255),
+    email varchar(255),
+    constraint uk_customer_email unique (email)
+);
+
+create index idx_customer_name on customer (name);
+
+insert into customer (name, email)
+select name, email from (
+    select name, email, row_number() over (partition by email order by id desc) as position
+    from (
+        select id, trim(customer) as name, lower(trim(customer_email)) as email from loan
+        union all
+        select id, trim(customer) as name, lower(trim(customer_email)) as email from loan_archive
+    ) loans
+    where email is not null and email <> ''
+) latest
+where position = 1;
+
+insert into customer (name, email)
+select distinct name, cast(null as varchar(255)) from (
+    select trim(customer) as name, customer_email as email from loan
+    union all
+    select trim(customer) as name, customer_email as email from loan_archive
+) loans
+where ( email is null or trim(email) = '' ) and name is not null and name <> '';
+
+alter table loan add column id_customer bigint;
+alter table loan_archive add column id_customer bigint;
+
+update loan set id_customer = (
+    select c.id from customer c where c.email = lower(trim(loan.customer_email))
+) where customer_email is not null and trim(customer_email) <> '';
+
+update loan set id_customer = (
+    select c.id from customer c where c.email is null and c.name = trim(loan.customer)
+) where id_customer is null;
+
+update loan_archive set id_customer = (
+    select c.id from customer c where c.email = lower(trim(loan_archive.customer_email))
+) where customer_email is not null and trim(customer_email) <> '';
+
+update loan_archive set id_customer = (
+    select c.id from customer c where c.email is null and c.name = trim(loan_archive.customer)
+) where id_customer is null;
+
+alter table loan add constraint fk_loan_customer foreign key (id_customer) references customer (id);
+alter table loan_archive add constraint fk_loan_archive_customer foreign key (id_customer) references customer (id);
+
+create index idx_loan_customer_loan_date on loan (id_customer, loan_date);
+create index idx_loan_archive_customer_loan_date on loan_archive (id_customer, loan_date);
+
+drop index idx_loan_customer;
+drop index idx_loan_archive_customer;
+
+alter table loan drop column customer;
+alter table loan drop column customer_email;
+alter table loan_archive drop column customer;
+alter table loan_archive drop column customer_email;
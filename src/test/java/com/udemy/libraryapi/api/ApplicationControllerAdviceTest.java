@@ -0,0 +1,57 @@
+package com.udemy.libraryapi.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udemy.libraryapi.exception.BusinessException;
+import com.udemy.libraryapi.exception.NotFoundException;
+import com.udemy.libraryapi.exception.ServiceUnavailableException;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+class ApplicationControllerAdviceTest {
+
+    @Test
+    @DisplayName("Should answer not found with the pre-serialized body")
+    void notFoundTest() throws Exception {
+        ApplicationControllerAdvice advice = new ApplicationControllerAdvice(new ObjectMapper());
+
+        ResponseEntity<byte[]> first = advice.handleNotFoundException(NotFoundException.INSTANCE);
+        ResponseEntity<byte[]> second = advice.handleNotFoundException(NotFoundException.INSTANCE);
+
+        BDDAssertions.assertThat(first.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        BDDAssertions.assertThat(new String(first.getBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"errors\":[\"Not found\"]}");
+        BDDAssertions.assertThat(second.getBody()).isSameAs(first.getBody());
+    }
+
+    @Test
+    @DisplayName("Should reuse the serialized body of a business error")
+    void businessErrorTest() throws Exception {
+        ApplicationControllerAdvice advice = new ApplicationControllerAdvice(new ObjectMapper());
+
+        ResponseEntity<byte[]> first = advice.handleBusinessException(new BusinessException("Book already loaned"));
+        ResponseEntity<byte[]> second = advice.handleBusinessException(new BusinessException("Book already loaned"));
+
+        BDDAssertions.assertThat(first.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        BDDAssertions.assertThat(second.getBody()).isSameAs(first.getBody());
+        BDDAssertions.assertThat(new BusinessException("Book already loaned").getStackTrace()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should answer an unavailable write with a 503 to retry")
+    void serviceUnavailableTest() throws Exception {
+        ApplicationControllerAdvice advice = new ApplicationControllerAdvice(new ObjectMapper());
+
+        ResponseEntity<byte[]> response = advice.handleServiceUnavailableException(ServiceUnavailableException.INSTANCE);
+
+        BDDAssertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        BDDAssertions.assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        BDDAssertions.assertThat(new String(response.getBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"errors\":[\"Service unavailable, try again later\"]}");
+    }
+}
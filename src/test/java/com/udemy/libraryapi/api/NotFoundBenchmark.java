@@ -0,0 +1,82 @@
+package com.udemy.libraryapi.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udemy.libraryapi.api.exception.ApiErrors;
+import com.udemy.libraryapi.exception.NotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cost of answering a 404 with a fresh {@link ResponseStatusException} and a serialized
+ * {@link ApiErrors} against the stackless {@link NotFoundException} and its pre-serialized body.
+ * {@code depth} is how many frames sit between the dispatcher and the throw. Not run by the
+ * test suite, start it from {@link #main(String[])} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    @Param({"20", "120"})
+    int depth;
+
+    ObjectMapper objectMapper;
+    ApplicationControllerAdvice advice;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        advice = new ApplicationControllerAdvice(objectMapper);
+    }
+
+    @Benchmark
+    public byte[] responseStatusException() throws Exception {
+        try {
+            throwAt(depth, () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        } catch (ResponseStatusException e) {
+            return objectMapper.writeValueAsBytes(new ApiErrors(e));
+        }
+        throw new IllegalStateException();
+    }
+
+    @Benchmark
+    public byte[] stacklessNotFound() {
+        try {
+            throwAt(depth, () -> NotFoundException.INSTANCE);
+        } catch (NotFoundException e) {
+            return advice.handleNotFoundException(e).getBody();
+        }
+        throw new IllegalStateException();
+    }
+
+    private static void throwAt(int depth, Supplier<RuntimeException> error) {
+        if (depth == 0) {
+            throw error.get();
+        }
+        throwAt(depth - 1, error);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotFoundBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,41 @@
+package com.udemy.libraryapi.api.filter;
+
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    static final long THRESHOLD = 100;
+
+    @Test
+    @DisplayName("Should keep part of the limit for high priority requests")
+    void priorityTest(){
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, THRESHOLD, 0.5, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            BDDAssertions.assertThat(limiter.tryAcquire(false)).isTrue();
+        }
+
+        BDDAssertions.assertThat(limiter.tryAcquire(false)).isFalse();
+        BDDAssertions.assertThat(limiter.tryAcquire(true)).isTrue();
+        BDDAssertions.assertThat(limiter.getInflight()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Should decrease the limit on slow responses and grow it on fast ones")
+    void aimdTest(){
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 100, THRESHOLD, 0.5, 1);
+
+        limiter.tryAcquire(true);
+        limiter.release(THRESHOLD + 1);
+        BDDAssertions.assertThat(limiter.getLimit()).isEqualTo(5);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(true);
+        }
+        limiter.release(THRESHOLD);
+        BDDAssertions.assertThat(limiter.getLimit()).isEqualTo(6);
+        BDDAssertions.assertThat(limiter.getInflight()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,94 @@
+package com.udemy.libraryapi.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+class RateLimitFilterTest {
+
+    SimpleMeterRegistry meterRegistry;
+    RateLimitFilter filter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(
+                new RateLimitFilter.Budget(1, 2, 100),
+                new RateLimitFilter.Budget(1, 1, 100),
+                new HashSet<>(Arrays.asList("client-a", "client-b")),
+                new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should allow a burst and then refill at the configured rate")
+    void tokenBucketTest(){
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+
+        BDDAssertions.assertThat(bucket.tryAcquire(now)).isTrue();
+        BDDAssertions.assertThat(bucket.tryAcquire(now)).isTrue();
+        BDDAssertions.assertThat(bucket.tryAcquire(now)).isFalse();
+        BDDAssertions.assertThat(bucket.tryAcquire(now + 100_000_000L)).isTrue();
+        BDDAssertions.assertThat(bucket.isFull(now + 1_000_000_000L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject with 429 in the api errors format when the client budget is exhausted")
+    void throttleTest() throws Exception {
+        MockHttpServletResponse first = perform("POST", "client-a");
+        MockHttpServletResponse second = perform("POST", "client-a");
+        MockHttpServletResponse otherClient = perform("POST", "client-b");
+        MockHttpServletResponse read = perform("GET", "client-a");
+
+        BDDAssertions.assertThat(first.getStatus()).isEqualTo(200);
+        BDDAssertions.assertThat(second.getStatus()).isEqualTo(429);
+        BDDAssertions.assertThat(second.getContentAsString()).isEqualTo("{\"errors\":[\"Too many requests\"]}");
+        BDDAssertions.assertThat(otherClient.getStatus()).isEqualTo(200);
+        BDDAssertions.assertThat(read.getStatus()).isEqualTo(200);
+        BDDAssertions.assertThat(meterRegistry.counter("library.ratelimit.throttled", "budget", "write").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should limit unknown api keys by remote address so rotating the key gives no fresh burst")
+    void unknownKeyTest() throws Exception {
+        MockHttpServletResponse first = perform("POST", "rotated-1");
+        MockHttpServletResponse rotated = perform("POST", "rotated-2");
+        MockHttpServletResponse known = perform("POST", "client-a");
+
+        BDDAssertions.assertThat(first.getStatus()).isEqualTo(200);
+        BDDAssertions.assertThat(rotated.getStatus()).isEqualTo(429);
+        BDDAssertions.assertThat(known.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should limit an authenticated client by its principal")
+    void principalTest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.setUserPrincipal(() -> "fulano");
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletResponse sameAddress = perform("POST", null);
+
+        BDDAssertions.assertThat(sameAddress.getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse perform(String method, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/loans");
+        if (client != null) {
+            request.addHeader(RateLimitFilter.CLIENT_HEADER, client);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
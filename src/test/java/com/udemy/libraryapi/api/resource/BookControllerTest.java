@@ -2,10 +2,15 @@ package com.udemy.libraryapi.api.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.udemy.libraryapi.api.dto.BookDTO;
+import com.udemy.libraryapi.api.dto.BookLookupDto;
 import com.udemy.libraryapi.domain.entity.Book;
 import com.udemy.libraryapi.exception.BusinessException;
 import com.udemy.libraryapi.service.BookService;
 import com.udemy.libraryapi.service.LoanService;
+import com.udemy.libraryapi.service.PopularBooksService;
+import com.udemy.libraryapi.service.RelatedBooksService;
+import com.udemy.libraryapi.service.impl.CoBorrowIndex;
+import com.udemy.libraryapi.service.impl.SpaceSavingSketch;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -28,6 +33,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
@@ -53,6 +59,12 @@ class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    PopularBooksService popularBooksService;
+
+    @MockBean
+    RelatedBooksService relatedBooksService;
+
     @Test
     @DisplayName("Should create a book when is success.")
     void createBookTest() throws Exception{
@@ -210,8 +222,6 @@ class BookControllerTest {
         Long id = 1l;
         String json = new ObjectMapper().writeValueAsString(createNewBook());
 
-        Book bookUpdate = Book.builder().id(id).title("some title").author("some author").isbn("123").build();
-
         Book updatedBook = Book.builder()
                 .id(1l)
                 .author("Joao")
@@ -219,10 +229,8 @@ class BookControllerTest {
                 .isbn("123")
                 .build();
 
-        BDDMockito.given( service.getById(anyLong()) )
-                .willReturn( Optional.of(bookUpdate) );
-        BDDMockito.given( service.update( bookUpdate ))
-                .willReturn( updatedBook );
+        BDDMockito.given( service.updateBook( anyLong(), any(Book.class) ))
+                .willReturn( Optional.of(updatedBook) );
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + 1))
@@ -244,7 +252,7 @@ class BookControllerTest {
     void updateNotExistBookTest() throws Exception {
         String json = new ObjectMapper().writeValueAsString(createNewBook());
 
-        BDDMockito.given( service.getById(anyLong()) )
+        BDDMockito.given( service.updateBook( anyLong(), any(Book.class) ))
                 .willReturn( Optional.empty() );
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -288,7 +296,156 @@ class BookControllerTest {
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("pageable.pageNumber").value(0))
+                .andExpect(jsonPath("content[0].available").value(true));
+    }
+
+    @Test
+    @DisplayName("Should mark loaned books as unavailable when filter books")
+    void findLoanedBookTest() throws Exception {
+        Long id = 1l;
+
+        Book book = Book.builder()
+                .id(id)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(
+                        new PageImpl<Book>( Arrays.asList(book),
+                        PageRequest.of(0,100),
+                        1));
+
+        BDDMockito.given(loanService.getLoanedBookIds(Arrays.asList(id)))
+                .willReturn(Collections.singleton(id));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?page=0&size=100"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform( request )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].available").value(false));
+    }
+
+    @Test
+    @DisplayName("Should resolve a list of ids and isbns reporting the missing ones")
+    void lookupBooksTest() throws Exception {
+        Book byId = Book.builder().id(1l).title("As aventuras").author("Joao").isbn("001").build();
+        Book byIsbn = Book.builder().id(2l).title("Outras aventuras").author("Joao").isbn("002").build();
+
+        BDDMockito.given(service.getByIds(any())).willReturn(Arrays.asList(byId));
+        BDDMockito.given(service.getByIsbns(any())).willReturn(Arrays.asList(byIsbn));
+
+        String json = new ObjectMapper().writeValueAsString(BookLookupDto.builder()
+                .ids(Arrays.asList(1l, 3l))
+                .isbns(Arrays.asList("002", "004"))
+                .build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform( request )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("found", hasSize(2)))
+                .andExpect(jsonPath("missingIds", Matchers.contains(3)))
+                .andExpect(jsonPath("missingIsbns", Matchers.contains("004")));
+    }
+
+    @Test
+    @DisplayName("Should reject a lookup with more entries than allowed")
+    void lookupTooManyBooksTest() throws Exception {
+        Long[] ids = new Long[1001];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (long) i;
+        }
+        String json = new ObjectMapper().writeValueAsString(BookLookupDto.builder()
+                .ids(Arrays.asList(ids))
+                .build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform( request )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(service, Mockito.never()).getByIds(any());
+    }
+
+    @Test
+    @DisplayName("Should list the most borrowed books with their loan counts")
+    void popularBooksTest() throws Exception {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.add(2l);
+        sketch.add(2l);
+        sketch.add(1l);
+        Book first = Book.builder().id(2l).title("Outras aventuras").author("Joao").isbn("002").build();
+        Book second = Book.builder().id(1l).title("As aventuras").author("Joao").isbn("001").build();
+
+        BDDMockito.given(popularBooksService.getMaxWindowDays()).willReturn(30);
+        BDDMockito.given(popularBooksService.getMostBorrowed(7, 10)).willReturn(sketch.top(10));
+        BDDMockito.given(service.getByIds(any())).willReturn(Arrays.asList(second, first));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/popular?window=7"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].book.id").value(2))
+                .andExpect(jsonPath("[0].loans").value(2))
+                .andExpect(jsonPath("[1].book.id").value(1));
+    }
+
+    @Test
+    @DisplayName("Should reject a popular books window larger than kept")
+    void popularBooksWindowTooLargeTest() throws Exception {
+        BDDMockito.given(popularBooksService.getMaxWindowDays()).willReturn(30);
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/popular?window=31"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should list the books borrowed by the same customers")
+    void relatedBooksTest() throws Exception {
+        CoBorrowIndex<String> index = new CoBorrowIndex<>(50, 200, 20);
+        index.addLoan("ana@email.com", 1l);
+        index.addLoan("ana@email.com", 2l);
+        index.refreshTopNeighbours();
+        Book book = Book.builder().id(1l).title("As aventuras").author("Joao").isbn("001").build();
+        Book related = Book.builder().id(2l).title("Outras aventuras").author("Joao").isbn("002").build();
+
+        BDDMockito.given(relatedBooksService.getTopK()).willReturn(20);
+        BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+        BDDMockito.given(relatedBooksService.getRelated(1l, 10)).willReturn(index.getRelated(1l, 10));
+        BDDMockito.given(service.getByIds(any())).willReturn(Arrays.asList(related));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/related"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0].book.id").value(2))
+                .andExpect(jsonPath("[0].coBorrowers").value(1));
+    }
+
+    @Test
+    @DisplayName("Should return not found when asking related books of a missing book")
+    void relatedBooksOfMissingBookTest() throws Exception {
+        BDDMockito.given(relatedBooksService.getTopK()).willReturn(20);
+        BDDMockito.given(service.getById(anyLong())).willReturn(Optional.empty());
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/related"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
     }
 
     private BookDTO createNewBook(){
@@ -0,0 +1,93 @@
+package com.udemy.libraryapi.api.resource;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import com.udemy.libraryapi.service.ChangeLogService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = ChangeController.class)
+@AutoConfigureMockMvc
+class ChangeControllerTest {
+
+    static final String CHANGE_API = "/api/changes";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    ChangeLogService service;
+
+    @Test
+    @DisplayName("Should list changes after the cursor and return the next cursor")
+    void listChangesTest() throws Exception {
+        BDDMockito.given(service.getChangesAfter(10l, 2)).willReturn(Arrays.asList(
+                createChange(11l, EntityType.BOOK, Action.CREATED),
+                createChange(14l, EntityType.LOAN, Action.UPDATED)));
+
+        mvc.perform(MockMvcRequestBuilders.get(CHANGE_API.concat("?since=10&limit=2"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("changes", hasSize(2)))
+                .andExpect(jsonPath("changes[0].cursor").value(11))
+                .andExpect(jsonPath("changes[1].entityType").value("LOAN"))
+                .andExpect(jsonPath("nextCursor").value(14));
+    }
+
+    @Test
+    @DisplayName("Should keep the cursor when there are no new changes")
+    void noChangesTest() throws Exception {
+        BDDMockito.given(service.getChangesAfter(anyLong(), anyInt())).willReturn(Collections.emptyList());
+
+        mvc.perform(MockMvcRequestBuilders.get(CHANGE_API.concat("?since=42"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("changes", hasSize(0)))
+                .andExpect(jsonPath("nextCursor").value(42));
+    }
+
+    @Test
+    @DisplayName("Should reject a limit above the maximum")
+    void limitTooLargeTest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get(CHANGE_API.concat("?limit=5000"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(service, Mockito.never()).getChangesAfter(anyLong(), anyInt());
+    }
+
+    private ChangeLog createChange(Long id, EntityType entityType, Action action){
+        return ChangeLog.builder()
+                .id(id)
+                .entityType(entityType)
+                .action(action)
+                .entityId(1l)
+                .changedAt(Instant.now())
+                .build();
+    }
+}
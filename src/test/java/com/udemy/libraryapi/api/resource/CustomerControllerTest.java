@@ -0,0 +1,85 @@
+package com.udemy.libraryapi.api.resource;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.service.CustomerService;
+import com.udemy.libraryapi.service.LoanService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CustomerController.class)
+@AutoConfigureMockMvc
+class CustomerControllerTest {
+
+    static String CUSTOMER_API = "/api/customers";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    CustomerService service;
+
+    @MockBean
+    LoanService loanService;
+
+    @Test
+    @DisplayName("Should list the loans of a customer, most recent first")
+    void loansByCustomerTest() throws Exception {
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+        Book book = Book.builder().id(1l).isbn("123").title("As aventuras").author("Joao").build();
+        Loan loan = Loan.builder().id(1l).customer(customer).book(book).loanDate(LocalDate.now()).build();
+
+        BDDMockito.given(service.getById(1l)).willReturn(Optional.of(customer));
+        BDDMockito.given(loanService.getLoansByCustomer(eq(customer),
+                argThat((Pageable page) -> page.getSort().equals(Sort.by(Sort.Direction.DESC, "loanDate"))),
+                eq(false)))
+                .willReturn(new PageImpl<>(Arrays.asList(loan), PageRequest.of(0, 20), 1));
+
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/loans"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].customer").value("Fulano"))
+                .andExpect(jsonPath("content[0].book.isbn").value("123"))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Should return not found for a missing customer")
+    void loansOfMissingCustomerTest() throws Exception {
+        BDDMockito.given(service.getById(anyLong())).willReturn(Optional.empty());
+
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/loans"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+}
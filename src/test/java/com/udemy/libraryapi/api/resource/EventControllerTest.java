@@ -0,0 +1,45 @@
+package com.udemy.libraryapi.api.resource;
+
+import com.udemy.libraryapi.service.ChangeEventBroadcaster;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = EventController.class)
+@AutoConfigureMockMvc
+class EventControllerTest {
+
+    static final String EVENT_API = "/api/events";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    ChangeEventBroadcaster broadcaster;
+
+    @Test
+    @DisplayName("Should open an event stream")
+    void streamTest() throws Exception {
+        BDDMockito.given(broadcaster.subscribe()).willReturn(new SseEmitter());
+
+        mvc.perform(MockMvcRequestBuilders.get(EVENT_API).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+}
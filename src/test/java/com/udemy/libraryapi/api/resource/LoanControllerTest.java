@@ -5,9 +5,11 @@ import com.udemy.libraryapi.api.dto.LoanDTO;
 import com.udemy.libraryapi.api.dto.LoanFilterDto;
 import com.udemy.libraryapi.api.dto.ReturnedLoanDto;
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
 import com.udemy.libraryapi.exception.BusinessException;
 import com.udemy.libraryapi.service.BookService;
+import com.udemy.libraryapi.service.IdempotencyService;
 import com.udemy.libraryapi.service.LoanService;
 import com.udemy.libraryapi.service.LoanServiceTest;
 import org.hamcrest.Matchers;
@@ -55,6 +57,9 @@ class LoanControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    IdempotencyService idempotencyService;
+
     @Test
     @DisplayName("Should make loan when success request")
     void createLoanTest() throws Exception{
@@ -66,7 +71,9 @@ class LoanControllerTest {
         Book book = Book.builder().id(id).isbn("123").build();
         BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Optional.of(book));
 
-        Loan loan = Loan.builder().id(id).customer("Fulano").book(book).loanDate(LocalDate.now()).build();
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("customer@email.com").build();
+
+        Loan loan = Loan.builder().id(id).customer(customer).book(book).loanDate(LocalDate.now()).build();
         BDDMockito.given(loanService.save(any(Loan.class))).willReturn(loan);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API)
@@ -78,6 +85,33 @@ class LoanControllerTest {
         mvc.perform(request)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
+
+        verify(loanService).save(argThat(saved -> saved.getCustomer().getId() == null
+                && saved.getCustomer().getName().equals("Fulano")
+                && saved.getCustomer().getEmail().equals("customer@email.com")));
+    }
+
+    @Test
+    @DisplayName("Should return the stored loan id when the idempotency key was already used")
+    void idempotentCreateLoanTest() throws Exception{
+        LoanDTO dto = LoanDTO.builder().isbn("123").email("customer@email.com").customer("Fulano").build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        BDDMockito.given(idempotencyService.execute(
+                eq("retry-1"), eq("123|Fulano|customer@email.com"), any()))
+                .willReturn(1l);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API)
+                .header("Idempotency-Key", "retry-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(content().string("1"));
+
+        verify(loanService, never()).save(any(Loan.class));
     }
 
     @Test
@@ -132,8 +166,7 @@ class LoanControllerTest {
     @DisplayName("Should return a book")
     void returnBookTest() throws Exception{
         ReturnedLoanDto dto = ReturnedLoanDto.builder().returned(true).build();
-        Loan loan = Loan.builder().id(1l).build();
-        when(loanService.getById(anyLong())).thenReturn(Optional.of(loan));
+        when(loanService.returnLoan(1l, true)).thenReturn(true);
         String json = new ObjectMapper().writeValueAsString(dto);
 
 
@@ -144,14 +177,15 @@ class LoanControllerTest {
                 .content(json)
         ).andExpect(status().isOk());
 
-        verify(loanService, times(1)).update(loan);
+        verify(loanService, times(1)).returnLoan(1l, true);
+        verify(loanService, never()).getById(anyLong());
     }
 
     @Test
     @DisplayName("Should return 404 when not found book")
     void NotFoundBookTest() throws Exception{
         ReturnedLoanDto dto = ReturnedLoanDto.builder().returned(true).build();
-        when(loanService.getById(anyLong())).thenReturn(Optional.empty());
+        when(loanService.returnLoan(anyLong(), any())).thenReturn(false);
         String json = new ObjectMapper().writeValueAsString(dto);
 
 
@@ -183,7 +217,7 @@ class LoanControllerTest {
 
         String queryString = String.format(
                 "?isbn=%s&customer=%s&page=0&size=10",
-                book.getIsbn(), loan.getCustomer());
+                book.getIsbn(), loan.getCustomer().getName());
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .get(LOAN_API.concat(queryString))
@@ -192,6 +226,9 @@ class LoanControllerTest {
         mvc.perform( request )
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].customer").value("Fulano"))
+                .andExpect(jsonPath("content[0].email").value("fulano@email.com"))
+                .andExpect(jsonPath("content[0].customerId").value(1))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(10))
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
@@ -0,0 +1,87 @@
+package com.udemy.libraryapi.config.cache;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheEvictOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.data.domain.PageRequest;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+class BookSearchCacheResolverTest {
+
+    BookSearchCacheResolver resolver;
+
+    @BeforeEach
+    void setup(){
+        resolver = new BookSearchCacheResolver(new CaffeineCacheManager(), null);
+    }
+
+    @Test
+    @DisplayName("Should name the filter shape by the populated fields")
+    void shapeOfTest(){
+        BDDAssertions.assertThat(BookSearchCacheResolver.shapeOf(new Book())).isEqualTo("empty");
+        BDDAssertions.assertThat(BookSearchCacheResolver.shapeOf(Book.builder().author("Fulano").build()))
+                .isEqualTo("author");
+        BDDAssertions.assertThat(BookSearchCacheResolver.shapeOf(Book.builder().title("As aventuras").author("Fulano").build()))
+                .isEqualTo("title+author");
+    }
+
+    @Test
+    @DisplayName("Should resolve one cache per filter shape and evict all of them")
+    void resolveCachesTest(){
+        Collection<? extends Cache> authorCaches = resolver.resolveCaches(
+                context(new CacheableOperation.Builder().build(), Book.builder().author("Fulano").build()));
+        resolver.resolveCaches(context(new CacheableOperation.Builder().build(), new Book()));
+
+        Collection<? extends Cache> evicted = resolver.resolveCaches(
+                context(new CacheEvictOperation.Builder().build(), new Book()));
+
+        BDDAssertions.assertThat(authorCaches).extracting(Cache::getName).containsExactly("bookSearch.author");
+        BDDAssertions.assertThat(evicted).hasSize(16);
+        BDDAssertions.assertThat(evicted).extracting(Cache::getName)
+                .contains("bookSearch.author", "bookSearch.empty", "bookSearch.id+title+author+isbn");
+    }
+
+    @Test
+    @DisplayName("Should have caches to evict before any search ran")
+    void evictBeforeSearchTest(){
+        Collection<? extends Cache> evicted = resolver.resolveCaches(
+                context(new CacheEvictOperation.Builder().build(), new Book()));
+
+        BDDAssertions.assertThat(evicted).hasSize(16);
+    }
+
+    private CacheOperationInvocationContext<BasicOperation> context(BasicOperation operation, Book filter){
+        Object[] args = new Object[]{ filter, PageRequest.of(0, 10) };
+        return new CacheOperationInvocationContext<BasicOperation>() {
+            @Override
+            public BasicOperation getOperation() {
+                return operation;
+            }
+
+            @Override
+            public Object getTarget() {
+                return null;
+            }
+
+            @Override
+            public Method getMethod() {
+                return null;
+            }
+
+            @Override
+            public Object[] getArgs() {
+                return args;
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.udemy.libraryapi.config.cache;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.model.repository.BookRepository;
+import com.udemy.libraryapi.service.BookService;
+import com.udemy.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = BookSearchCachingTest.Config.class)
+class BookSearchCachingTest {
+
+    @Configuration
+    @Import({BookSearchCacheConfig.class, BookServiceImpl.class})
+    static class Config {
+        @Bean
+        CacheManager cacheManager(){
+            return new CaffeineCacheManager();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry(){
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    BookService service;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Should save a book through the cache before any search and evict later searches")
+    @SuppressWarnings("unchecked")
+    void saveBeforeSearchTest(){
+        Book book = Book.builder().id(1l).isbn("123").title("As aventuras").author("Fulano").build();
+        when(repository.existsByIsbn("123")).thenReturn(false);
+        when(repository.save(any(Book.class))).thenReturn(book);
+        when(repository.findAll(any(Example.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Collections.singletonList(book)));
+        Book filter = Book.builder().author("Fulano").build();
+
+        BDDAssertions.assertThat(service.save(book)).isSameAs(book);
+
+        service.find(filter, PageRequest.of(0, 10));
+        service.find(filter, PageRequest.of(0, 10));
+        verify(repository, times(1)).findAll(any(Example.class), any(Pageable.class));
+
+        service.update(book);
+        service.find(filter, PageRequest.of(0, 10));
+        verify(repository, times(2)).findAll(any(Example.class), any(Pageable.class));
+    }
+}
@@ -0,0 +1,139 @@
+package com.udemy.libraryapi.config.datasource;
+
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+class ReplicationRoutingDataSourceTest {
+
+    private static final String CLIENT = "addr:10.0.0.1";
+
+    private ReplicationRoutingDataSource routing;
+
+    @AfterEach
+    void tearDown(){
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (routing != null) {
+            routing.unbindClient();
+        }
+    }
+
+    @Test
+    @DisplayName("Should send read only transactions to the replica")
+    void readOnlyGoesToReplica() throws Exception {
+        DataSource dataSource = createDataSource(createRouting(0));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        BDDAssertions.assertThat(urlOf(dataSource)).contains("replica");
+    }
+
+    @Test
+    @DisplayName("Should send writes to the primary")
+    void writeGoesToPrimary() throws Exception {
+        DataSource dataSource = createDataSource(createRouting(0));
+
+        BDDAssertions.assertThat(urlOf(dataSource)).contains("primary");
+    }
+
+    @Test
+    @DisplayName("Should keep reads on the primary right after a write")
+    void readAfterWriteStaysOnPrimary() throws Exception {
+        routing = createRouting(60_000);
+        DataSource dataSource = createDataSource(routing);
+
+        routing.bindClient(CLIENT);
+        routing.markWrite(CLIENT);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        BDDAssertions.assertThat(urlOf(dataSource)).contains("primary");
+    }
+
+    @Test
+    @DisplayName("Should keep other clients on the replica after a write")
+    void otherClientsStayOnReplica() throws Exception {
+        routing = createRouting(60_000);
+        DataSource dataSource = createDataSource(routing);
+
+        routing.markWrite(CLIENT);
+        routing.bindClient("addr:10.0.0.2");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        BDDAssertions.assertThat(urlOf(dataSource)).contains("replica");
+    }
+
+    @Test
+    @DisplayName("Should not pin reads to the primary after a rolled back write")
+    void rolledBackWriteIsNotRecorded() throws Exception {
+        routing = createRouting(60_000);
+        DataSource dataSource = createDataSource(routing);
+        routing.bindClient(CLIENT);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            BDDAssertions.assertThat(urlOf(dataSource)).contains("primary");
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        BDDAssertions.assertThat(urlOf(dataSource)).contains("replica");
+    }
+
+    @Test
+    @DisplayName("Should pin the client's reads to the primary once its write commits")
+    void committedWriteIsRecorded() throws Exception {
+        routing = createRouting(60_000);
+        DataSource dataSource = createDataSource(routing);
+        routing.bindClient(CLIENT);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            BDDAssertions.assertThat(urlOf(dataSource)).contains("primary");
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        BDDAssertions.assertThat(urlOf(dataSource)).contains("primary");
+    }
+
+    private ReplicationRoutingDataSource createRouting(long maxStalenessMillis){
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "sa", "");
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicationRoutingDataSource.Route.PRIMARY, primary);
+        targets.put(ReplicationRoutingDataSource.Route.REPLICA, replica);
+
+        ReplicationRoutingDataSource routing = new ReplicationRoutingDataSource(maxStalenessMillis, 100);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private DataSource createDataSource(ReplicationRoutingDataSource routing){
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private String urlOf(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+}
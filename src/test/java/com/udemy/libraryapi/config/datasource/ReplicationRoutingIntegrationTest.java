@@ -0,0 +1,132 @@
+package com.udemy.libraryapi.config.datasource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udemy.libraryapi.api.dto.LoanDTO;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicationRoutingIntegrationTest.PRIMARY_URL,
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.mail.test-connection=false",
+        "application.datasource.replica.enabled=true",
+        "application.datasource.replica.url=" + ReplicationRoutingIntegrationTest.REPLICA_URL,
+        "application.datasource.replica.max-staleness-ms=60000",
+        "application.ratelimit.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReplicationRoutingIntegrationTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String ISBN = "123";
+
+    private final JdbcTemplate primary = jdbcOf(PRIMARY_URL);
+    private final JdbcTemplate replica = jdbcOf(REPLICA_URL);
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    Environment environment;
+
+    @BeforeEach
+    void setUp(){
+        for (JdbcTemplate database : List.of(primary, replica)) {
+            database.update("delete from loan");
+            database.update("delete from customer");
+            database.update("delete from book");
+            database.update("insert into book (id, title, author, isbn) values (1, 'As aventuras', 'Fulano', ?)", ISBN);
+        }
+    }
+
+    @Test
+    @DisplayName("Should turn open-in-view off when replicas are enabled")
+    void openInViewIsOff(){
+        BDDAssertions.assertThat(environment.getProperty(ReplicaEnvironmentPostProcessor.OPEN_IN_VIEW, Boolean.class))
+                .isFalse();
+    }
+
+    @Test
+    @DisplayName("Should write a loan to the primary after looking its book up on the replica")
+    void loanIsWrittenToPrimary() throws Exception {
+        createLoan(client("10.0.0.1"));
+
+        BDDAssertions.assertThat(countLoans(primary)).isEqualTo(1);
+        BDDAssertions.assertThat(countLoans(replica)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should read a client's own writes from the primary while other clients read the replica")
+    void readYourWritesIsPerClient() throws Exception {
+        createLoan(client("10.0.0.1"));
+
+        mvc.perform(get("/api/loans").param("isbn", ISBN).with(client("10.0.0.1")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)));
+
+        mvc.perform(get("/api/loans").param("isbn", ISBN).with(client("10.0.0.2")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(0)));
+    }
+
+    private void createLoan(RequestPostProcessor client) throws Exception {
+        LoanDTO dto = LoanDTO.builder().isbn(ISBN).customer("Fulano").email("fulano@email.com").build();
+
+        mvc.perform(post("/api/loans")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto))
+                        .with(client))
+                .andExpect(status().isCreated());
+    }
+
+    private static RequestPostProcessor client(String address){
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+
+    private static int countLoans(JdbcTemplate database){
+        return database.queryForObject("select count(*) from loan", Integer.class);
+    }
+
+    private static JdbcTemplate jdbcOf(String url){
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+
+    @TestConfiguration
+    static class ReplicaSchema {
+
+        // Hibernate only creates the schema on the primary, so copy it over before anything reads the replica
+        @Bean
+        Object replicaSchema(EntityManagerFactory entityManagerFactory){
+            JdbcTemplate replica = jdbcOf(REPLICA_URL);
+            jdbcOf(PRIMARY_URL).queryForList("script nodata", String.class).forEach(replica::execute);
+            return entityManagerFactory;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.udemy.libraryapi.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.spi.FilterReply;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class RingBufferAsyncAppenderTest {
+
+    LoggerContext context = new LoggerContext();
+
+    @Test
+    @DisplayName("Should hand events to the attached appenders in order")
+    void appendTest() throws Exception {
+        RecordingAppender recording = new RecordingAppender(null);
+        RingBufferAsyncAppender appender = createAppender(recording, 16);
+
+        for (int i = 0; i < 10; i++) {
+            appender.doAppend(event(Level.INFO, "event " + i));
+        }
+        appender.stop();
+
+        BDDAssertions.assertThat(recording.messages).hasSize(10).startsWith("event 0").endsWith("event 9");
+        BDDAssertions.assertThat(appender.getDropped()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should drop and count events when the buffer is full")
+    void dropWhenFullTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingAppender recording = new RecordingAppender(release);
+        RingBufferAsyncAppender appender = createAppender(recording, 4);
+
+        // the first event parks the worker, the next four fill the buffer
+        for (int i = 0; i < 8; i++) {
+            appender.doAppend(event(Level.INFO, "event " + i));
+            if (i == 0) {
+                recording.started.await(1, TimeUnit.SECONDS);
+            }
+        }
+        release.countDown();
+        appender.stop();
+
+        BDDAssertions.assertThat(appender.getDropped()).isEqualTo(3);
+        BDDAssertions.assertThat(recording.messages).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("Should keep only a sample of read events")
+    void samplingTest() {
+        SamplingFilter filter = new SamplingFilter();
+        filter.setRate(10);
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            LoggingEvent event = event(Level.INFO, "read");
+            event.setMarker(LogMarkers.READ);
+            if (filter.decide(event) != FilterReply.DENY) {
+                accepted++;
+            }
+        }
+
+        BDDAssertions.assertThat(accepted).isEqualTo(10);
+        BDDAssertions.assertThat(filter.decide(event(Level.INFO, "write")))
+                .isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    private RingBufferAsyncAppender createAppender(RecordingAppender recording, int bufferSize) {
+        recording.setContext(context);
+        recording.start();
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.setBufferSize(bufferSize);
+        appender.addAppender(recording);
+        appender.start();
+        return appender;
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(level);
+        event.setMessage(message);
+        event.setLoggerName("test");
+        event.setThreadName("main");
+        event.setTimeStamp(System.currentTimeMillis());
+        return event;
+    }
+
+    static class RecordingAppender extends AppenderBase<ILoggingEvent> {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release;
+
+        RecordingAppender(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            started.countDown();
+            if (release != null) {
+                try {
+                    release.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            messages.add(event.getFormattedMessage());
+        }
+    }
+}
@@ -10,7 +10,14 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 @ExtendWith(SpringExtension.class)
@@ -24,6 +31,9 @@ class BookRepositoryTest {
     @Autowired
     BookRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Test
     @DisplayName("Should return true when exist book in DB with ISBN provider")
     void ShouldReturnTrueWhenExistBookInDB(){
@@ -68,6 +78,35 @@ class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Should keep a loaded book in the second level cache")
+    // Hibernate never caches an entity inserted by the transaction still running
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void findByIdCachedBook(){
+        Book book = repository.save(createNewBook("123"));
+        Cache cache = entityManagerFactory.getCache();
+        cache.evict(Book.class);
+
+        try {
+            repository.findById(book.getId());
+
+            BDDAssertions.assertThat(cache.contains(Book.class, book.getId())).isTrue();
+        } finally {
+            repository.deleteById(book.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should return books by a list of isbns")
+    void findByIsbnIn(){
+        entityManager.persist(createNewBook("123"));
+        entityManager.persist(createNewBook("456"));
+
+        List<Book> books = repository.findByIsbnIn(Arrays.asList("123", "789"));
+
+        BDDAssertions.assertThat(books).extracting(Book::getIsbn).containsExactly("123");
+    }
+
     @Test
     @DisplayName("Should save a book")
     void saveBookTest(){
@@ -0,0 +1,64 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class ChangeLogRepositoryTest {
+
+    @Autowired
+    ChangeLogRepository repository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Should list changes after the cursor in cursor order")
+    void findChangesAfterTest(){
+        Instant now = Instant.now();
+        ChangeLog first = persistChange(now.minusSeconds(30));
+        ChangeLog second = persistChange(now.minusSeconds(20));
+        ChangeLog third = persistChange(now.minusSeconds(10));
+
+        List<ChangeLog> changes = repository.findChangesAfter(first.getId(), PageRequest.of(0, 10));
+
+        BDDAssertions.assertThat(changes).containsExactly(second, third);
+    }
+
+    @Test
+    @DisplayName("Should limit the changes listed after the cursor")
+    void findChangesAfterLimitTest(){
+        Instant now = Instant.now();
+        ChangeLog first = persistChange(now.minusSeconds(30));
+        persistChange(now.minusSeconds(20));
+
+        List<ChangeLog> changes = repository.findChangesAfter(0l, PageRequest.of(0, 1));
+
+        BDDAssertions.assertThat(changes).containsExactly(first);
+    }
+
+    private ChangeLog persistChange(Instant changedAt){
+        return entityManager.persist(ChangeLog.builder()
+                .entityType(EntityType.BOOK)
+                .action(Action.UPDATED)
+                .entityId(1l)
+                .changedAt(changedAt)
+                .build());
+    }
+}
@@ -0,0 +1,70 @@
+package com.udemy.libraryapi.model.repository;
+
+import com.udemy.libraryapi.domain.entity.JobLock;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Instant;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class JobLockRepositoryTest {
+
+    @Autowired
+    JobLockRepository repository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Should acquire a lock whose lease has expired")
+    void acquireExpiredLockTest(){
+        Instant now = Instant.now();
+        persistLock("job", now.minusSeconds(1), "node-a");
+
+        int acquired = repository.acquire("job", "node-b", now, now.plusSeconds(60));
+
+        BDDAssertions.assertThat(acquired).isEqualTo(1);
+        entityManager.clear();
+        BDDAssertions.assertThat(repository.findById("job").get().getLockedBy()).isEqualTo("node-b");
+    }
+
+    @Test
+    @DisplayName("Should not acquire a lock held by another node")
+    void acquireHeldLockTest(){
+        Instant now = Instant.now();
+        persistLock("job", now.plusSeconds(60), "node-a");
+
+        int acquired = repository.acquire("job", "node-b", now, now.plusSeconds(60));
+
+        BDDAssertions.assertThat(acquired).isZero();
+    }
+
+    @Test
+    @DisplayName("Should release only a lock owned by the caller")
+    void releaseTest(){
+        Instant now = Instant.now();
+        persistLock("job", now.plusSeconds(60), "node-a");
+
+        BDDAssertions.assertThat(repository.release("job", "node-b", now)).isZero();
+        BDDAssertions.assertThat(repository.release("job", "node-a", now)).isEqualTo(1);
+    }
+
+    private void persistLock(String name, Instant lockedUntil, String owner){
+        entityManager.persist(JobLock.builder()
+                .name(name)
+                .lockedAt(lockedUntil.minusSeconds(60))
+                .lockedUntil(lockedUntil)
+                .lockedBy(owner)
+                .build());
+        entityManager.flush();
+    }
+}
@@ -1,6 +1,7 @@
 package com.udemy.libraryapi.model.repository;
 
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
 import org.assertj.core.api.BDDAssertions;
 import org.junit.jupiter.api.DisplayName;
@@ -12,11 +13,13 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.udemy.libraryapi.model.repository.BookRepositoryTest.createNewBook;
@@ -43,48 +46,233 @@ class LoanRepositoryTest {
     }
 
     @Test
-    @DisplayName("Should search loan by isbn book or customer")
-    void findByBookIsbnOrCustomer(){
+    @DisplayName("Should page the loans matching the isbn book or the customer name")
+    void findByBookIsbnOrCustomerName(){
         Loan loan = createAndPersistLoan(LocalDate.now());
 
-        Page<Loan> result = repository.findByBookIsbnOrCustomer("123", "Fulano", PageRequest.of(0, 10));
+        Page<Loan> byIsbn = repository.findByBookIsbnOrCustomerName("123", "Ciclano", PageRequest.of(0, 10));
+        Page<Loan> byCustomer = repository.findByBookIsbnOrCustomerName("321", "Fulano", PageRequest.of(0, 10));
+        Page<Loan> byBoth = repository.findByBookIsbnOrCustomerName("123", "Fulano", PageRequest.of(0, 10));
+        Page<Loan> byNone = repository.findByBookIsbnOrCustomerName("321", "Ciclano", PageRequest.of(0, 10));
 
-        BDDAssertions.assertThat(result.getContent()).hasSize(1);
-        BDDAssertions.assertThat(result.getContent()).contains(loan);
-        BDDAssertions.assertThat(result.getPageable().getPageSize()).isEqualTo(10);
-        BDDAssertions.assertThat(result.getPageable().getPageNumber()).isEqualTo(0);
-        BDDAssertions.assertThat(result.getTotalElements()).isEqualTo(1);
+        BDDAssertions.assertThat(byIsbn.getContent()).containsExactly(loan);
+        BDDAssertions.assertThat(byCustomer.getContent()).containsExactly(loan);
+        BDDAssertions.assertThat(byBoth.getContent()).containsExactly(loan);
+        BDDAssertions.assertThat(byBoth.getTotalElements()).isEqualTo(1);
+        BDDAssertions.assertThat(byNone.getContent()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should search loan by isbn book only")
+    void findByBookIsbn(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+
+        Page<Loan> result = repository.findByBookIsbn("123", PageRequest.of(0, 10));
+
+        BDDAssertions.assertThat(result.getContent()).containsExactly(loan);
+    }
+
+    @Test
+    @DisplayName("Should search loan by customer name only")
+    void findByCustomerName(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+
+        Page<Loan> result = repository.findByCustomerName("Fulano", PageRequest.of(0, 10));
 
+        BDDAssertions.assertThat(result.getContent()).containsExactly(loan);
     }
 
     @Test
-    @DisplayName("Should get loans by loan date smaller three days ago and not returned")
-    void findByLoanDateLessThanAndNotReturned(){
+    @DisplayName("Should list the loans of a customer, most recent first")
+    void findByCustomer(){
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(10));
+        Loan recent = createAndPersistLoan(LocalDate.now());
+
+        Page<Loan> result = repository.findByCustomer(recent.getCustomer(),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "loanDate")));
+
+        BDDAssertions.assertThat(result.getContent()).containsExactly(recent, older);
+    }
+
+    @Test
+    @DisplayName("Should get loans past their due date and not returned")
+    void findByDueDateLessThanAndNotReturned(){
         Loan loan = createAndPersistLoan(LocalDate.now().minusDays(5));
 
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findByDueDateLessThanAndNotReturned(LocalDate.now(), LocalDate.now().minusDays(4));
 
         BDDAssertions.assertThat(result).hasSize(1).contains(loan);
     }
 
+    @Test
+    @DisplayName("Should get late loans without a due date by the default loan days")
+    void findByDueDateLessThanAndNotReturnedWithoutDueDate(){
+        Loan late = createAndPersistLoan(LocalDate.now().minusDays(5));
+        late.setDueDate(null);
+        Loan onTime = createAndPersistLoan(LocalDate.now().minusDays(3));
+        onTime.setDueDate(null);
+        entityManager.flush();
+
+        List<Loan> result = repository.findByDueDateLessThanAndNotReturned(LocalDate.now(), LocalDate.now().minusDays(4));
+
+        BDDAssertions.assertThat(result).containsExactly(late);
+    }
+
     @Test
     @DisplayName("Should return empty when do not find late loans")
-    void notFindByLoanDateLessThanAndNotReturned(){
+    void notFindByDueDateLessThanAndNotReturned(){
         createAndPersistLoan(LocalDate.now());
 
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findByDueDateLessThanAndNotReturned(LocalDate.now(), LocalDate.now().minusDays(4));
 
         BDDAssertions.assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Should return only ids of books with loans not returned")
+    void findNotReturnedBookIds(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+
+        Book returnedBook = createNewBook("321");
+        entityManager.persist(returnedBook);
+        entityManager.persist(Loan.builder()
+                .book(returnedBook)
+                .customer(loan.getCustomer())
+                .loanDate(LocalDate.now())
+                .returned(true)
+                .build());
+
+        List<Long> result = repository.findNotReturnedBookIds(
+                Arrays.asList(loan.getBook().getId(), returnedBook.getId()));
+
+        BDDAssertions.assertThat(result).containsExactly(loan.getBook().getId());
+    }
+
+    @Test
+    @DisplayName("Should get returned loans older than the archive threshold")
+    void findReturnedBefore(){
+        Loan loan = createAndPersistLoan(LocalDate.now().minusDays(40));
+        loan.setReturned(true);
+        loan.setReturnDate(LocalDate.now().minusDays(35));
+        entityManager.persist(loan);
+
+        Loan recent = createAndPersistLoan(LocalDate.now().minusDays(40));
+        recent.setReturned(true);
+        recent.setReturnDate(LocalDate.now().minusDays(1));
+        entityManager.persist(recent);
+
+        List<Loan> result = repository.findReturnedBefore(LocalDate.now().minusDays(30), PageRequest.of(0, 10));
+
+        BDDAssertions.assertThat(result).containsExactly(loan);
+    }
+
+    @Test
+    @DisplayName("Should mark a loan as returned by id")
+    void updateReturned(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+
+        int updated = repository.updateReturned(loan.getId(), true, LocalDate.now());
+        entityManager.clear();
+
+        BDDAssertions.assertThat(updated).isEqualTo(1);
+        BDDAssertions.assertThat(entityManager.find(Loan.class, loan.getId()).getReturned()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should list open loans after an id with their due dates")
+    void findOpenLoansAfter(){
+        Loan open = createAndPersistLoan(LocalDate.now());
+        Loan returned = createAndPersistLoan(LocalDate.now());
+        returned.setReturned(true);
+        entityManager.persist(returned);
+
+        List<LoanRepository.OpenLoan> result = repository.findOpenLoansAfter(0l, PageRequest.of(0, 10));
+
+        BDDAssertions.assertThat(result).hasSize(1);
+        BDDAssertions.assertThat(result.get(0).getId()).isEqualTo(open.getId());
+        BDDAssertions.assertThat(result.get(0).getDueDate()).isEqualTo(open.getDueDate());
+    }
+
+    @Test
+    @DisplayName("Should find loans that became late since the watermark and were never notified")
+    void findNewlyLate(){
+        Loan newlyLate = createAndPersistLoan(LocalDate.now().minusDays(5));
+        Loan notified = createAndPersistLoan(LocalDate.now().minusDays(5));
+        notified.setLastNotifiedDate(LocalDate.now().minusDays(1));
+        entityManager.persist(notified);
+        createAndPersistLoan(LocalDate.now().minusDays(20));
+
+        List<Loan> result = repository.findNewlyLate(LocalDate.now().minusDays(3), LocalDate.now(),
+                LocalDate.now().minusDays(7), LocalDate.now().minusDays(4));
+
+        BDDAssertions.assertThat(result).containsExactly(newlyLate);
+    }
+
+    @Test
+    @DisplayName("Should find newly late loans without a due date by the default loan days")
+    void findNewlyLateWithoutDueDate(){
+        Loan newlyLate = createAndPersistLoan(LocalDate.now().minusDays(5));
+        newlyLate.setDueDate(null);
+        Loan lateBeforeWatermark = createAndPersistLoan(LocalDate.now().minusDays(20));
+        lateBeforeWatermark.setDueDate(null);
+        entityManager.flush();
+
+        List<Loan> result = repository.findNewlyLate(LocalDate.now().minusDays(3), LocalDate.now(),
+                LocalDate.now().minusDays(7), LocalDate.now().minusDays(4));
+
+        BDDAssertions.assertThat(result).containsExactly(newlyLate);
+    }
+
+    @Test
+    @DisplayName("Should find late loans whose last notice is older than the reminder cadence")
+    void findDueForReminder(){
+        Loan due = createAndPersistLoan(LocalDate.now().minusDays(20));
+        due.setLastNotifiedDate(LocalDate.now().minusDays(7));
+        entityManager.persist(due);
+        Loan recent = createAndPersistLoan(LocalDate.now().minusDays(20));
+        recent.setLastNotifiedDate(LocalDate.now().minusDays(2));
+        entityManager.persist(recent);
+
+        List<Loan> result = repository.findDueForReminder(LocalDate.now().minusDays(7));
+
+        BDDAssertions.assertThat(result).containsExactly(due);
+    }
+
+    @Test
+    @DisplayName("Should mark loans as notified")
+    void updateLastNotifiedDate(){
+        Loan loan = createAndPersistLoan(LocalDate.now().minusDays(5));
+
+        int updated = repository.updateLastNotifiedDate(Arrays.asList(loan.getId()), LocalDate.now());
+
+        BDDAssertions.assertThat(updated).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not update anything when loan does not exist")
+    void updateReturnedNotFound(){
+        int updated = repository.updateReturned(99l, true, LocalDate.now());
+
+        BDDAssertions.assertThat(updated).isZero();
+    }
+
     Loan createAndPersistLoan(LocalDate loanDate){
         Book book= createNewBook("123");
         entityManager.persist(book);
 
+        Customer customer = entityManager.getEntityManager()
+                .createQuery("select c from Customer c where c.email = :email", Customer.class)
+                .setParameter("email", "fulano@email.com")
+                .getResultStream()
+                .findFirst()
+                .orElseGet(() -> entityManager.persist(
+                        Customer.builder().name("Fulano").email("fulano@email.com").build()));
+
         Loan loan = Loan.builder()
                 .book(book)
-                .customer("Fulano")
+                .customer(customer)
                 .loanDate(loanDate)
+                .dueDate(loanDate.plusDays(4))
                 .build();
         entityManager.persist(loan);
 
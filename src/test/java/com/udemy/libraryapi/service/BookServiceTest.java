@@ -4,6 +4,7 @@ import com.udemy.libraryapi.domain.entity.Book;
 import com.udemy.libraryapi.exception.BusinessException;
 import com.udemy.libraryapi.model.repository.BookRepository;
 import com.udemy.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.BDDAssertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
@@ -18,7 +20,9 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -39,7 +43,8 @@ class BookServiceTest {
 
     @BeforeEach
     void setup(){
-        this.service = new BookServiceImpl(repository);
+        this.service = new BookServiceImpl(repository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), mock(ApplicationEventPublisher.class));
     }
 
     Book createBook(){
@@ -194,6 +199,48 @@ class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Should update title and author of a found book")
+    void updateBookByIdTest(){
+        Long id = 1l;
+        Book found = createBook();
+        found.setId(id);
+        when(repository.findById(id)).thenReturn(Optional.of(found));
+
+        Optional<Book> book = service.updateBook(id, Book.builder().title("Outro titulo").author("Ciclano").isbn("999").build());
+
+        assertThat(book).isPresent();
+        assertThat(book.get().getTitle()).isEqualTo("Outro titulo");
+        assertThat(book.get().getAuthor()).isEqualTo("Ciclano");
+        assertThat(book.get().getIsbn()).isEqualTo("123");
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should return empty when updating a book not in DB")
+    void updateBookByIdNotFoundTest(){
+        when(repository.findById(anyLong())).thenReturn(Optional.empty());
+
+        Optional<Book> book = service.updateBook(1l, createBook());
+
+        assertThat(book).isNotPresent();
+    }
+
+    @Test
+    @DisplayName("Should look books up by isbn in chunks")
+    void getByIsbnsTest(){
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            isbns.add(String.valueOf(i));
+        }
+        when(repository.findByIsbnIn(any())).thenReturn(Collections.singletonList(createBook()));
+
+        List<Book> books = service.getByIsbns(isbns);
+
+        assertThat(books).hasSize(3);
+        verify(repository, times(3)).findByIsbnIn(any());
+    }
+
     @Test
     @DisplayName("Should return a book by isbn")
     void getBookByIsbn(){
@@ -0,0 +1,42 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.event.EntityChangedEvent;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ExecutorService;
+
+class ChangeEventBroadcasterTest {
+
+    SimpleMeterRegistry meterRegistry;
+    ChangeEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setup(){
+        meterRegistry = new SimpleMeterRegistry();
+        // senders never run, so queued events pile up like on a stalled client
+        broadcaster = new ChangeEventBroadcaster(2, 60_000, Mockito.mock(ExecutorService.class), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should evict a subscriber whose queue is full")
+    void evictSlowSubscriberTest(){
+        broadcaster.subscribe();
+
+        for (long id = 1; id <= 2; id++) {
+            broadcaster.onChange(new EntityChangedEvent(EntityType.LOAN, Action.CREATED, id, null));
+        }
+        BDDAssertions.assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+
+        broadcaster.onChange(new EntityChangedEvent(EntityType.LOAN, Action.CREATED, 3l, null));
+
+        BDDAssertions.assertThat(broadcaster.getSubscriberCount()).isZero();
+        BDDAssertions.assertThat(meterRegistry.counter("library.events.subscribers.evicted").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.ChangeLog;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.Action;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent.EntityType;
+import com.udemy.libraryapi.model.repository.ChangeLogRepository;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class ChangeLogServiceTest {
+
+    @MockBean
+    ChangeLogRepository repository;
+
+    ChangeLogService service;
+
+    @BeforeEach
+    void setup(){
+        service = new ChangeLogService(repository, 5_000);
+    }
+
+    @Test
+    @DisplayName("Should stop the page at the first unsettled change so the cursor never passes it")
+    void stopsAtFirstUnsettledChange(){
+        Instant now = Instant.now();
+        ChangeLog settled = change(1l, now.minusSeconds(30));
+        ChangeLog unsettled = change(2l, now);
+        ChangeLog settledBehindUnsettled = change(3l, now.minusSeconds(20));
+        when(repository.findChangesAfter(eq(0l), any(Pageable.class)))
+                .thenReturn(Arrays.asList(settled, unsettled, settledBehindUnsettled));
+
+        List<ChangeLog> changes = service.getChangesAfter(0l, 10);
+
+        BDDAssertions.assertThat(changes).containsExactly(settled);
+    }
+
+    @Test
+    @DisplayName("Should return the whole page when every change is settled")
+    void returnsSettledPage(){
+        Instant now = Instant.now();
+        ChangeLog first = change(1l, now.minusSeconds(30));
+        ChangeLog second = change(2l, now.minusSeconds(20));
+        when(repository.findChangesAfter(eq(0l), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+        List<ChangeLog> changes = service.getChangesAfter(0l, 10);
+
+        BDDAssertions.assertThat(changes).containsExactly(first, second);
+    }
+
+    private ChangeLog change(Long id, Instant changedAt){
+        return ChangeLog.builder()
+                .id(id)
+                .entityType(EntityType.LOAN)
+                .action(Action.CREATED)
+                .entityId(id)
+                .changedAt(changedAt)
+                .build();
+    }
+}
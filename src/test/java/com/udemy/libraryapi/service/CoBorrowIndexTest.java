@@ -0,0 +1,96 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.CoBorrowIndex;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+class CoBorrowIndexTest {
+
+    @Test
+    @DisplayName("Should rank the books borrowed by the same customers")
+    void relatedTest(){
+        CoBorrowIndex<String> index = new CoBorrowIndex<>(50, 200, 20);
+        index.addLoan("ana@email.com", 1l);
+        index.addLoan("ana@email.com", 2l);
+        index.addLoan("ana@email.com", 3l);
+        index.addLoan("joao@email.com", 1l);
+        index.addLoan("joao@email.com", 2l);
+
+        index.refreshTopNeighbours();
+        List<CoBorrowIndex.Related> related = index.getRelated(1l, 10);
+
+        BDDAssertions.assertThat(bookIds(related)).containsExactly(2l, 3l);
+        BDDAssertions.assertThat(related.get(0).getCount()).isEqualTo(2);
+        BDDAssertions.assertThat(related.get(1).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should only show new pairs after the top neighbours are refreshed")
+    void refreshTest(){
+        CoBorrowIndex<String> index = new CoBorrowIndex<>(50, 200, 20);
+        index.addLoan("ana@email.com", 1l);
+        index.addLoan("ana@email.com", 2l);
+
+        BDDAssertions.assertThat(index.getRelated(1l, 10)).isEmpty();
+
+        index.refreshTopNeighbours();
+
+        BDDAssertions.assertThat(bookIds(index.getRelated(1l, 10))).containsExactly(2l);
+    }
+
+    @Test
+    @DisplayName("Should pair a loan only with the last books of the customer")
+    void historyLimitTest(){
+        CoBorrowIndex<String> index = new CoBorrowIndex<>(2, 200, 20);
+        index.addLoan("ana@email.com", 1l);
+        index.addLoan("ana@email.com", 2l);
+        index.addLoan("ana@email.com", 3l);
+        index.addLoan("ana@email.com", 4l);
+
+        index.refreshTopNeighbours();
+
+        BDDAssertions.assertThat(bookIds(index.getRelated(4l, 10))).containsExactly(2l, 3l);
+    }
+
+    @Test
+    @DisplayName("Should not count a book borrowed again by the same customer")
+    void repeatedLoanTest(){
+        CoBorrowIndex<String> index = new CoBorrowIndex<>(50, 200, 20);
+        index.addLoan("ana@email.com", 1l);
+        index.addLoan("ana@email.com", 2l);
+        index.addLoan("ana@email.com", 1l);
+
+        index.refreshTopNeighbours();
+
+        BDDAssertions.assertThat(index.getRelated(1l, 10).get(0).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep the strongest neighbours when pruning")
+    void pruneTest(){
+        CoBorrowIndex<String> index = new CoBorrowIndex<>(50, 2, 20);
+        for (int i = 0; i < 10; i++) {
+            index.addLoan("reader" + i, 1l);
+            index.addLoan("reader" + i, 2l);
+        }
+        for (int i = 0; i < 10; i++) {
+            index.addLoan("visitor" + i, 1l);
+            index.addLoan("visitor" + i, 100l + i);
+        }
+
+        index.refreshTopNeighbours();
+        List<CoBorrowIndex.Related> related = index.getRelated(1l, 20);
+
+        BDDAssertions.assertThat(related.size()).isLessThan(4);
+        BDDAssertions.assertThat(related.get(0).getBookId()).isEqualTo(2l);
+        BDDAssertions.assertThat(related.get(0).getCount()).isEqualTo(10);
+    }
+
+    private List<Long> bookIds(List<CoBorrowIndex.Related> related){
+        return related.stream().map(CoBorrowIndex.Related::getBookId).collect(Collectors.toList());
+    }
+}
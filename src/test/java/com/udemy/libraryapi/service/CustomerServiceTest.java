@@ -0,0 +1,71 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.model.repository.CustomerRepository;
+import com.udemy.libraryapi.service.impl.CustomerServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class CustomerServiceTest {
+
+    CustomerService service;
+
+    @MockBean
+    CustomerRepository repository;
+
+    @BeforeEach
+    void setup(){
+        this.service = new CustomerServiceImpl(repository);
+    }
+
+    @Test
+    @DisplayName("Should reuse the customer with the same e-mail")
+    void getExistingCustomerTest(){
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+        when(repository.findByEmail("fulano@email.com")).thenReturn(Optional.of(customer));
+
+        Customer result = service.getOrCreate("Fulano", " Fulano@Email.com ");
+
+        BDDAssertions.assertThat(result).isSameAs(customer);
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Should create a customer with the normalized e-mail")
+    void createCustomerTest(){
+        when(repository.findByEmail("fulano@email.com")).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(Customer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Customer result = service.getOrCreate(" Fulano ", "Fulano@Email.com");
+
+        BDDAssertions.assertThat(result.getName()).isEqualTo("Fulano");
+        BDDAssertions.assertThat(result.getEmail()).isEqualTo("fulano@email.com");
+    }
+
+    @Test
+    @DisplayName("Should leave a concurrent insert of the same e-mail to the caller's transaction")
+    void concurrentCreateTest(){
+        when(repository.findByEmail("fulano@email.com")).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(Customer.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_customer_email"));
+
+        Throwable exception = Assertions.catchThrowable(() -> service.getOrCreate("Fulano", "fulano@email.com"));
+
+        BDDAssertions.assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.GroupCommitter;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class GroupCommitterTest {
+
+    @Test
+    @DisplayName("Should write the items queued during a commit as one batch")
+    void coalesceTest() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitter<Integer, Integer> committer = new GroupCommitter<>("test-writer", 100, 10, 0,
+                items -> {
+                    batchSizes.add(items.size());
+                    firstBatchStarted.countDown();
+                    await(releaseFirstBatch);
+                    return items.stream().map(item -> item * 2).collect(Collectors.toList());
+                });
+
+        CompletableFuture<Integer> first = committer.submit(1);
+        firstBatchStarted.await(1, TimeUnit.SECONDS);
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 2; i <= 6; i++) {
+            queued.add(committer.submit(i));
+        }
+        BDDAssertions.assertThat(first).isNotDone();
+        releaseFirstBatch.countDown();
+
+        BDDAssertions.assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo(2);
+        BDDAssertions.assertThat(queued.get(4).get(1, TimeUnit.SECONDS)).isEqualTo(12);
+        BDDAssertions.assertThat(batchSizes).containsExactly(1, 5);
+        committer.close(1000);
+    }
+
+    @Test
+    @DisplayName("Should fail every item of a batch that could not be written")
+    void failedBatchTest() throws Exception {
+        GroupCommitter<Integer, Integer> committer = new GroupCommitter<>("test-writer", 100, 10, 0,
+                items -> {
+                    throw new IllegalStateException("connection lost");
+                });
+
+        CompletableFuture<Integer> result = committer.submit(1);
+
+        BDDAssertions.assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        committer.close(1000);
+    }
+
+    @Test
+    @DisplayName("Should retry a failed batch item by item so only the bad item fails")
+    void failedItemTest() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitter<Integer, Integer> committer = new GroupCommitter<>("test-writer", 100, 10, 0,
+                items -> {
+                    batchSizes.add(items.size());
+                    firstBatchStarted.countDown();
+                    await(releaseFirstBatch);
+                    if (items.contains(3)) {
+                        throw new IllegalStateException("constraint violated");
+                    }
+                    return items;
+                });
+
+        committer.submit(1);
+        firstBatchStarted.await(1, TimeUnit.SECONDS);
+        CompletableFuture<Integer> second = committer.submit(2);
+        CompletableFuture<Integer> bad = committer.submit(3);
+        CompletableFuture<Integer> fourth = committer.submit(4);
+        releaseFirstBatch.countDown();
+
+        BDDAssertions.assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo(2);
+        BDDAssertions.assertThat(fourth.get(1, TimeUnit.SECONDS)).isEqualTo(4);
+        BDDAssertions.assertThatThrownBy(() -> bad.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        BDDAssertions.assertThat(batchSizes).containsExactly(1, 3, 1, 1, 1);
+        committer.close(1000);
+    }
+
+    @Test
+    @DisplayName("Should reject items once closed")
+    void closedTest() throws Exception {
+        GroupCommitter<Integer, Integer> committer = new GroupCommitter<>("test-writer", 100, 10, 0,
+                items -> items);
+        committer.close(1000);
+
+        BDDAssertions.assertThat(committer.submit(1)).isCompletedExceptionally();
+    }
+
+    @Test
+    @DisplayName("Should reject an item waiting for room when the committer closes")
+    void closedWhileQueueingTest() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        GroupCommitter<Integer, Integer> committer = new GroupCommitter<>("test-writer", 1, 1, 0,
+                items -> {
+                    writing.countDown();
+                    await(releaseWriter);
+                    return items;
+                });
+        committer.submit(1);
+        writing.await(1, TimeUnit.SECONDS);
+        committer.submit(2);
+
+        CompletableFuture<CompletableFuture<Integer>> waiting = CompletableFuture.supplyAsync(() -> committer.submit(3));
+        committer.close(50);
+        releaseWriter.countDown();
+
+        BDDAssertions.assertThatThrownBy(() -> waiting.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
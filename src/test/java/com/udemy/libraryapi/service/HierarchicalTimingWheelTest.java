@@ -0,0 +1,64 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.HierarchicalTimingWheel;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    @DisplayName("Should expire keys in deadline order across wheel levels")
+    void expireAcrossLevelsTest(){
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 4, 0);
+
+        wheel.schedule(1l, 25);
+        wheel.schedule(2l, 170);
+        wheel.schedule(3l, 700);
+
+        BDDAssertions.assertThat(wheel.advance(19)).isEmpty();
+        BDDAssertions.assertThat(wheel.advance(20)).containsExactly(1l);
+        BDDAssertions.assertThat(wheel.advance(160)).isEmpty();
+        BDDAssertions.assertThat(wheel.advance(170)).containsExactly(2l);
+        BDDAssertions.assertThat(wheel.size()).isEqualTo(1);
+
+        List<Long> expired = wheel.advance(700);
+
+        BDDAssertions.assertThat(expired).containsExactly(3l);
+        BDDAssertions.assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not expire a cancelled key")
+    void cancelTest(){
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 4, 0);
+        wheel.schedule(1l, 500);
+
+        BDDAssertions.assertThat(wheel.cancel(1l)).isTrue();
+
+        BDDAssertions.assertThat(wheel.advance(1000)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should move a rescheduled key to its new deadline")
+    void rescheduleTest(){
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 4, 0);
+        wheel.schedule(1l, 30);
+
+        wheel.schedule(1l, 300);
+
+        BDDAssertions.assertThat(wheel.advance(200)).isEmpty();
+        BDDAssertions.assertThat(wheel.advance(300)).containsExactly(1l);
+    }
+
+    @Test
+    @DisplayName("Should refuse a deadline that already passed")
+    void pastDeadlineTest(){
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 4, 100);
+
+        BDDAssertions.assertThat(wheel.schedule(1l, 50)).isFalse();
+        BDDAssertions.assertThat(wheel.size()).isZero();
+    }
+}
@@ -0,0 +1,102 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.exception.BusinessException;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class IdempotencyServiceTest {
+
+    IdempotencyService service;
+
+    @BeforeEach
+    void setup(){
+        service = new IdempotencyService(100, 60);
+    }
+
+    @Test
+    @DisplayName("Should return the first result for a retried key without running again")
+    void retryTest(){
+        AtomicLong ids = new AtomicLong();
+
+        Long first = service.execute("key", "123|Fulano", ids::incrementAndGet);
+        Long retry = service.execute("key", "123|Fulano", ids::incrementAndGet);
+
+        BDDAssertions.assertThat(retry).isEqualTo(first);
+        BDDAssertions.assertThat(ids.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void differentRequestTest(){
+        service.execute("key", "123|Fulano", () -> 1l);
+
+        Throwable exception = Assertions.catchThrowable(() -> service.execute("key", "321|Ciclano", () -> 2l));
+
+        BDDAssertions.assertThat(exception).isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    @DisplayName("Should not remember failed requests")
+    void failureTest(){
+        Assertions.catchThrowable(() -> service.execute("key", "123|Fulano", () -> {
+            throw new BusinessException("Book already loaned");
+        }));
+
+        Long id = service.execute("key", "123|Fulano", () -> 1l);
+
+        BDDAssertions.assertThat(id).isEqualTo(1l);
+    }
+
+    @Test
+    @DisplayName("Should make a concurrent request with the same key wait for the first result")
+    void concurrentRequestTest() throws Exception {
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> first = executor.submit(() -> service.execute("key", "123|Fulano", () -> {
+                started.countDown();
+                await(release);
+                return ids.incrementAndGet();
+            }));
+            started.await();
+
+            CompletableFuture<Long> retry = CompletableFuture.supplyAsync(
+                    () -> service.execute("key", "123|Fulano", ids::incrementAndGet));
+            release.countDown();
+
+            BDDAssertions.assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo(first.get(5, TimeUnit.SECONDS));
+            BDDAssertions.assertThat(ids.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run the action outside the cache so it may use other keys")
+    void nestedKeyTest(){
+        Long id = service.execute("outer", "123|Fulano", () -> service.execute("inner", "321|Ciclano", () -> 1l));
+
+        BDDAssertions.assertThat(id).isEqualTo(1l);
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.model.repository.LoanArchiveRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class LoanArchiveServiceTest {
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    LoanArchiveRepository archiveRepository;
+
+    @MockBean
+    TransactionTemplate transactionTemplate;
+
+    @MockBean
+    JobLockService jobLockService;
+
+    LoanArchiveService service;
+
+    @BeforeEach
+    void setup(){
+        service = new LoanArchiveService(loanRepository, archiveRepository, transactionTemplate, jobLockService);
+        ReflectionTestUtils.setField(service, "archiveAfterDays", 30);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(jobLockService.runLocked(anyString(), any(Duration.class), any(Duration.class), any(Runnable.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(3).run();
+                    return true;
+                });
+    }
+
+    @Test
+    @DisplayName("Should move returned loans to the archive in batches")
+    void archiveReturnedLoansTest(){
+        List<Loan> firstBatch = Arrays.asList(LoanServiceTest.createLoan(), LoanServiceTest.createLoan());
+        List<Loan> secondBatch = Collections.singletonList(LoanServiceTest.createLoan());
+
+        when(loanRepository.findReturnedBefore(any(LocalDate.class), any(Pageable.class)))
+                .thenReturn(firstBatch, secondBatch);
+
+        service.archiveReturnedLoans();
+
+        verify(archiveRepository, times(2)).saveAll(any());
+        verify(loanRepository).deleteAllInBatch(firstBatch);
+        verify(loanRepository).deleteAllInBatch(secondBatch);
+    }
+
+    @Test
+    @DisplayName("Should not archive when another node holds the job lock")
+    void archiveLockedByAnotherNodeTest(){
+        when(jobLockService.runLocked(anyString(), any(Duration.class), any(Duration.class), any(Runnable.class)))
+                .thenReturn(false);
+
+        service.archiveReturnedLoans();
+
+        verify(loanRepository, never()).findReturnedBefore(any(LocalDate.class), any(Pageable.class));
+    }
+}
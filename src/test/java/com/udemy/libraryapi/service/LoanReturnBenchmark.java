@@ -0,0 +1,134 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.GroupCommitter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loan returns per second from concurrent callers when each one commits its own transaction
+ * against joining a group commit, with the commits each mode needed printed after every
+ * iteration. Runs on an H2 file database unless {@code -Dbenchmark.jdbc-url} points somewhere
+ * else, which matters since the gain grows with the cost of a commit. Not run by the test
+ * suite, start it from {@link #main(String[])} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class LoanReturnBenchmark {
+
+    private static final int LOANS = 10000;
+
+    @Param({"2"})
+    long maxDelayMillis;
+
+    @Param({"100"})
+    int maxBatchSize;
+
+    HikariDataSource dataSource;
+    JdbcTemplate jdbc;
+    TransactionTemplate transaction;
+    GroupCommitter<Long, Boolean> committer;
+
+    final AtomicLong nextLoan = new AtomicLong();
+    final AtomicLong returns = new AtomicLong();
+    final AtomicLong commits = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("benchmark.jdbc-url",
+                "jdbc:h2:file:" + Files.createTempDirectory("loan-returns").resolve("library")));
+        dataSource.setMaximumPoolSize(32);
+        jdbc = new JdbcTemplate(dataSource);
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbc.execute("drop table if exists loan_return_benchmark");
+        jdbc.execute("create table loan_return_benchmark (id bigint primary key, returned boolean, return_date date)");
+        List<Object[]> loans = new ArrayList<>(LOANS);
+        for (long id = 0; id < LOANS; id++) {
+            loans.add(new Object[]{id});
+        }
+        jdbc.batchUpdate("insert into loan_return_benchmark (id, returned) values (?, false)", loans);
+
+        committer = new GroupCommitter<>("benchmark-return-writer", 10000, maxBatchSize, maxDelayMillis,
+                ids -> transaction.execute(status -> {
+                    commits.incrementAndGet();
+                    List<Boolean> results = new ArrayList<>(ids.size());
+                    ids.forEach(id -> results.add(returnLoan(id)));
+                    return results;
+                }));
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long iterationReturns = returns.getAndSet(0);
+        long iterationCommits = commits.getAndSet(0);
+        System.out.printf("%n%d returns in %d commits (%.1f returns per commit)%n", iterationReturns,
+                iterationCommits, iterationCommits == 0 ? 0.0 : (double) iterationReturns / iterationCommits);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        committer.close(5000);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean perRequestTransaction() {
+        long id = next();
+        return transaction.execute(status -> {
+            commits.incrementAndGet();
+            return returnLoan(id);
+        });
+    }
+
+    @Benchmark
+    public boolean groupCommit() {
+        return committer.submit(next()).join();
+    }
+
+    private long next() {
+        returns.incrementAndGet();
+        return nextLoan.getAndIncrement() % LOANS;
+    }
+
+    private boolean returnLoan(long id) {
+        return jdbc.update("update loan_return_benchmark set returned = true, return_date = ? where id = ?",
+                Date.valueOf(LocalDate.now()), id) > 0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoanReturnBenchmark.class.getSimpleName()).build()).run();
+    }
+}
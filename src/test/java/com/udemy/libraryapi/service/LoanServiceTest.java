@@ -2,8 +2,13 @@ package com.udemy.libraryapi.service;
 
 import com.udemy.libraryapi.api.dto.LoanFilterDto;
 import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
 import com.udemy.libraryapi.domain.entity.Loan;
 import com.udemy.libraryapi.exception.BusinessException;
+import com.udemy.libraryapi.exception.ServiceUnavailableException;
+import com.udemy.libraryapi.domain.entity.LoanArchive;
+import com.udemy.libraryapi.domain.event.EntityChangedEvent;
+import com.udemy.libraryapi.model.repository.LoanArchiveRepository;
 import com.udemy.libraryapi.model.repository.LoanRepository;
 import com.udemy.libraryapi.service.impl.LoanServiceImpl;
 import org.assertj.core.api.Assertions;
@@ -14,6 +19,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -22,9 +31,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.Mockito.*;
 
@@ -35,11 +46,21 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    LoanArchiveRepository archiveRepository;
+
+    @MockBean
+    CustomerService customerService;
+
+    ApplicationEventPublisher eventPublisher;
+
     LoanService service;
 
     @BeforeEach
     void setup(){
-        service = new LoanServiceImpl(repository);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new LoanServiceImpl(repository, archiveRepository, eventPublisher, customerService,
+                mock(PlatformTransactionManager.class), 4);
     }
 
 
@@ -48,7 +69,7 @@ public class LoanServiceTest {
     void saveLoanTest(){
 
         Book book = Book.builder().id(1l).build();
-        String customer = "Fulano";
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
 
         Loan savingLoan = createLoan();
 
@@ -71,6 +92,19 @@ public class LoanServiceTest {
         BDDAssertions.assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
     }
 
+    @Test
+    @DisplayName("Should set the default due date when saving a loan without one")
+    void saveLoanDefaultDueDateTest(){
+        Loan savingLoan = createLoan();
+
+        when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(false);
+        when(repository.save(savingLoan)).thenReturn(savingLoan);
+
+        service.save(savingLoan);
+
+        BDDAssertions.assertThat(savingLoan.getDueDate()).isEqualTo(savingLoan.getLoanDate().plusDays(4));
+    }
+
     @Test
     @DisplayName("Should throw exception when save a loan already loan")
     void saveLoanFailTest(){
@@ -90,6 +124,55 @@ public class LoanServiceTest {
         verify(repository, never()).save(savingLoan);
     }
 
+    @Test
+    @DisplayName("Should resolve a new customer by e-mail when saving the loan")
+    void saveLoanNewCustomerTest(){
+        Loan savingLoan = createLoan();
+        savingLoan.setCustomer(Customer.builder().name("Fulano").email("fulano@email.com").build());
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+
+        when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(false);
+        when(customerService.getOrCreate("Fulano", "fulano@email.com")).thenReturn(customer);
+        when(repository.save(savingLoan)).thenReturn(savingLoan);
+
+        Loan loan = service.save(savingLoan);
+
+        BDDAssertions.assertThat(loan.getCustomer()).isSameAs(customer);
+    }
+
+    @Test
+    @DisplayName("Should not create the customer when the book is already loaned")
+    void saveLoanFailNewCustomerTest(){
+        Loan savingLoan = createLoan();
+        savingLoan.setCustomer(Customer.builder().name("Fulano").email("fulano@email.com").build());
+
+        when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(true);
+
+        Assertions.catchThrowable(() -> service.save(savingLoan));
+
+        verify(customerService, never()).getOrCreate(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should save again when a concurrent loan created the same customer first")
+    void saveLoanConcurrentCustomerTest(){
+        Loan savingLoan = createLoan();
+        Customer newCustomer = Customer.builder().name("Fulano").email("fulano@email.com").build();
+        savingLoan.setCustomer(newCustomer);
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+
+        when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(false);
+        when(customerService.getOrCreate("Fulano", "fulano@email.com"))
+                .thenThrow(new DataIntegrityViolationException("uk_customer_email"))
+                .thenReturn(customer);
+        when(repository.save(savingLoan)).thenReturn(savingLoan);
+
+        Loan loan = service.save(savingLoan);
+
+        BDDAssertions.assertThat(loan.getCustomer()).isSameAs(customer);
+        verify(customerService, times(2)).getOrCreate("Fulano", "fulano@email.com");
+    }
+
     @Test
     @DisplayName("Should get information of loan by id")
     void getLoanDetailsTest(){
@@ -122,10 +205,85 @@ public class LoanServiceTest {
         Loan updatedLoan = service.update(loan);
 
         BDDAssertions.assertThat(updatedLoan.getReturned()).isTrue();
+        BDDAssertions.assertThat(updatedLoan.getReturnDate()).isEqualTo(LocalDate.now());
         verify(repository).save(loan);
     }
 
 
+    @Test
+    @DisplayName("Should return loan with a single conditional update")
+    void returnLoanTest(){
+        when(repository.updateReturned(1l, true, LocalDate.now())).thenReturn(1);
+
+        boolean found = service.returnLoan(1l, true);
+
+        BDDAssertions.assertThat(found).isTrue();
+        verify(repository, never()).findById(anyLong());
+        verify(repository, never()).save(any());
+        verify(eventPublisher).publishEvent(any(EntityChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should answer a write-behind return once its group is committed")
+    void writeBehindReturnLoanTest() throws Exception {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        LoanServiceImpl writeBehindService = new LoanServiceImpl(repository, archiveRepository, eventPublisher,
+                customerService, transactionManager, 4);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehind", true);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindQueueSize", 10);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindMaxBatchSize", 10);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindMaxDelayMillis", 1l);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindTimeoutMillis", 5000l);
+        writeBehindService.start();
+        when(repository.updateReturned(1l, true, LocalDate.now())).thenReturn(1);
+        when(repository.updateReturned(2l, true, LocalDate.now())).thenReturn(0);
+
+        try {
+            BDDAssertions.assertThat(writeBehindService.returnLoan(1l, true)).isTrue();
+            BDDAssertions.assertThat(writeBehindService.returnLoan(2l, true)).isFalse();
+        } finally {
+            writeBehindService.stop();
+        }
+
+        verify(transactionManager, times(2)).commit(any());
+        verify(eventPublisher, times(1)).publishEvent(any(EntityChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should answer unavailable when a write-behind return times out or the writer is closed")
+    void writeBehindReturnLoanUnavailableTest() throws Exception {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        LoanServiceImpl writeBehindService = new LoanServiceImpl(repository, archiveRepository, eventPublisher,
+                customerService, transactionManager, 4);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehind", true);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindQueueSize", 10);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindMaxBatchSize", 10);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindMaxDelayMillis", 1l);
+        ReflectionTestUtils.setField(writeBehindService, "writeBehindTimeoutMillis", 10l);
+        writeBehindService.start();
+        when(repository.updateReturned(1l, true, LocalDate.now())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return 1;
+        });
+
+        Assertions.assertThatThrownBy(() -> writeBehindService.returnLoan(1l, true))
+                .isSameAs(ServiceUnavailableException.INSTANCE);
+        writeBehindService.stop();
+        Assertions.assertThatThrownBy(() -> writeBehindService.returnLoan(1l, true))
+                .isSameAs(ServiceUnavailableException.INSTANCE);
+    }
+
+    @Test
+    @DisplayName("Should report not found when no loan was updated")
+    void returnLoanNotFoundTest(){
+        when(repository.updateReturned(anyLong(), any(), any())).thenReturn(0);
+
+        boolean found = service.returnLoan(1l, true);
+
+        BDDAssertions.assertThat(found).isFalse();
+        verify(eventPublisher, never()).publishEvent(any(EntityChangedEvent.class));
+    }
+
     @Test
     @DisplayName("Should filter loans by properties")
     void findLoanTest(){
@@ -143,9 +301,7 @@ public class LoanServiceTest {
 
         Page<Loan> page = new PageImpl<Loan>(list ,pageRequest,list.size());
 
-        Mockito.when(repository.findByBookIsbnOrCustomer(
-                anyString(), anyString(), any(PageRequest.class)))
-                .thenReturn(page);
+        Mockito.when(repository.findByBookIsbnOrCustomerName("321", "Fulano", pageRequest)).thenReturn(page);
 
         Page<Loan> result = service.find(loanFilterDto, pageRequest);
 
@@ -157,9 +313,117 @@ public class LoanServiceTest {
     }
 
 
+    @Test
+    @DisplayName("Should query loans by isbn only when only isbn is provided")
+    void findLoanByIsbnTest(){
+        LoanFilterDto loanFilterDto = LoanFilterDto.builder().isbn("321").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Mockito.when(repository.findByBookIsbn(anyString(), any(PageRequest.class)))
+                .thenReturn(new PageImpl<Loan>(Collections.emptyList(), pageRequest, 0));
+
+        service.find(loanFilterDto, pageRequest);
+
+        verify(repository).findByBookIsbn("321", pageRequest);
+        verify(repository, never()).findByBookIsbnOrCustomerName(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not read the archive when history is not requested")
+    void findLoanWithoutHistoryTest(){
+        LoanFilterDto loanFilterDto = LoanFilterDto.builder().customer("Fulano").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Mockito.when(repository.findByCustomerName(anyString(), any(PageRequest.class)))
+                .thenReturn(new PageImpl<Loan>(Collections.emptyList(), pageRequest, 0));
+
+        service.find(loanFilterDto, pageRequest);
+
+        verify(archiveRepository, never()).findByCustomerName(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should append archived loans after the hot loans when history is requested")
+    void findLoanWithHistoryTest(){
+        LoanFilterDto loanFilterDto = LoanFilterDto.builder().customer("Fulano").history(true).build();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        Loan loan = createLoan();
+        loan.setId(2l);
+        LoanArchive archived = LoanArchive.of(createLoan(), LocalDate.now());
+        archived.setId(1l);
+
+        Mockito.when(repository.findByCustomerName(anyString(), any(PageRequest.class)))
+                .thenReturn(new PageImpl<Loan>(Collections.singletonList(loan), pageRequest, 1));
+        Mockito.when(archiveRepository.findByCustomerName(anyString(), any(PageRequest.class)))
+                .thenReturn(new PageImpl<LoanArchive>(Collections.singletonList(archived), PageRequest.of(0, 2), 1));
+
+        Page<Loan> result = service.find(loanFilterDto, pageRequest);
+
+        BDDAssertions.assertThat(result.getTotalElements()).isEqualTo(2);
+        BDDAssertions.assertThat(result.getContent()).extracting(Loan::getId).containsExactly(2l, 1l);
+    }
+
+    @Test
+    @DisplayName("Should list the loans of a customer including the archived ones")
+    void getLoansByCustomerTest(){
+        Loan loan = createLoan();
+        loan.setId(2l);
+        LoanArchive archived = LoanArchive.of(createLoan(), LocalDate.now());
+        archived.setId(1l);
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Mockito.when(repository.findByCustomer(loan.getCustomer(), pageRequest))
+                .thenReturn(new PageImpl<Loan>(Collections.singletonList(loan), pageRequest, 1));
+        Mockito.when(archiveRepository.findByCustomer(any(Customer.class), any(PageRequest.class)))
+                .thenReturn(new PageImpl<LoanArchive>(Collections.singletonList(archived), pageRequest, 1));
+
+        Page<Loan> result = service.getLoansByCustomer(loan.getCustomer(), pageRequest, true);
+
+        BDDAssertions.assertThat(result.getContent()).extracting(Loan::getId).containsExactly(2l, 1l);
+    }
+
+    @Test
+    @DisplayName("Should return ids of loaned books")
+    void getLoanedBookIdsTest(){
+        List<Long> bookIds = Arrays.asList(1l, 2l);
+
+        when(repository.findNotReturnedBookIds(bookIds)).thenReturn(Collections.singletonList(1l));
+
+        Set<Long> result = service.getLoanedBookIds(bookIds);
+
+        BDDAssertions.assertThat(result).containsExactly(1l);
+    }
+
+    @Test
+    @DisplayName("Should not query loans when there are no books")
+    void getLoanedBookIdsEmptyTest(){
+        Set<Long> result = service.getLoanedBookIds(Collections.emptyList());
+
+        BDDAssertions.assertThat(result).isEmpty();
+        verify(repository, never()).findNotReturnedBookIds(any());
+    }
+
+    @Test
+    @DisplayName("Should merge newly late loans and reminders without duplicates")
+    void getLoansToNotifyTest(){
+        LocalDate today = LocalDate.now();
+        Loan newlyLate = createLoan();
+        newlyLate.setId(1l);
+        Loan reminder = createLoan();
+        reminder.setId(2l);
+
+        when(repository.findNewlyLate(today.minusDays(1), today, today.minusDays(5), today.minusDays(4))).thenReturn(Arrays.asList(newlyLate));
+        when(repository.findDueForReminder(today.minusDays(7))).thenReturn(Arrays.asList(reminder, newlyLate));
+
+        List<Loan> result = service.getLoansToNotify(today.minusDays(1), today, 7);
+
+        BDDAssertions.assertThat(result).containsExactly(newlyLate, reminder);
+    }
+
     public static Loan createLoan(){
         Book book = Book.builder().id(1l).build();
-        String customer = "Fulano";
+        Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
 
         return Loan.builder()
                 .book(book)
@@ -0,0 +1,41 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.LongLongHashMap;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LongLongHashMapTest {
+
+    @Test
+    @DisplayName("Should keep the counters while growing")
+    void addToTest(){
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 0; key < 1000; key++) {
+            map.addTo(key, key);
+            map.addTo(key, 1);
+        }
+
+        BDDAssertions.assertThat(map.size()).isEqualTo(1000);
+        BDDAssertions.assertThat(map.get(0l)).isEqualTo(1);
+        BDDAssertions.assertThat(map.get(999l)).isEqualTo(1000);
+        BDDAssertions.assertThat(map.get(1000l)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should retain exactly the largest counters, ties included")
+    void retainLargestTest(){
+        LongLongHashMap map = new LongLongHashMap(8);
+        map.addTo(1l, 5);
+        map.addTo(2l, 3);
+        map.addTo(3l, 3);
+        map.addTo(4l, 3);
+        map.addTo(5l, 1);
+
+        map.retainLargest(3);
+
+        BDDAssertions.assertThat(map.size()).isEqualTo(3);
+        BDDAssertions.assertThat(map.get(1l)).isEqualTo(5);
+        BDDAssertions.assertThat(map.get(5l)).isZero();
+    }
+}
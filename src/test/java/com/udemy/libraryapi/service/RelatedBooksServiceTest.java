@@ -0,0 +1,66 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.model.repository.LoanArchiveRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository;
+import com.udemy.libraryapi.model.repository.LoanRepository.LoanedBook;
+import com.udemy.libraryapi.service.impl.CoBorrowIndex;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class RelatedBooksServiceTest {
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    LoanArchiveRepository archiveRepository;
+
+    @MockBean
+    ChangeLogService changeLogService;
+
+    RelatedBooksService service;
+
+    @BeforeEach
+    void setup(){
+        service = new RelatedBooksService(loanRepository, archiveRepository, changeLogService, 50, 200, 20, 1000);
+        when(archiveRepository.findLoanedBooksAfter(anyLong(), any())).thenReturn(Collections.emptyList());
+        List<LoanedBook> loans = Arrays.asList(loanedBook(1l, 1l, 10l), loanedBook(2l, 1l, 20l));
+        when(loanRepository.findLoanedBooksAfter(anyLong(), any())).thenReturn(loans);
+    }
+
+    @Test
+    @DisplayName("Should answer empty until the first sync builds the index")
+    void firstSyncBuildsIndexTest(){
+        BDDAssertions.assertThat(service.getRelated(10l, 5)).isEmpty();
+
+        service.sync();
+
+        BDDAssertions.assertThat(service.getRelated(10l, 5))
+                .extracting(CoBorrowIndex.Related::getBookId).containsExactly(20l);
+        verify(changeLogService, never()).getChangesAfter(anyLong(), anyInt());
+    }
+
+    private LoanedBook loanedBook(Long id, Long customerId, Long bookId){
+        LoanedBook loan = mock(LoanedBook.class);
+        when(loan.getId()).thenReturn(id);
+        when(loan.getCustomerId()).thenReturn(customerId);
+        when(loan.getBookId()).thenReturn(bookId);
+        return loan;
+    }
+}
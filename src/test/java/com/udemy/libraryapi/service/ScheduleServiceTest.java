@@ -0,0 +1,133 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.domain.entity.Book;
+import com.udemy.libraryapi.domain.entity.Customer;
+import com.udemy.libraryapi.domain.entity.JobWatermark;
+import com.udemy.libraryapi.domain.entity.Loan;
+import com.udemy.libraryapi.model.repository.JobWatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class ScheduleServiceTest {
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    EmailService emailService;
+
+    @MockBean
+    JobLockService jobLockService;
+
+    @MockBean
+    JobWatermarkRepository watermarkRepository;
+
+    ScheduleService service;
+
+    @BeforeEach
+    void setup(){
+        LateLoanDigestTemplate template = new LateLoanDigestTemplate("{customer} ({count}):\n{titles}");
+        service = new ScheduleService(loanService, emailService, jobLockService, watermarkRepository, template);
+        ReflectionTestUtils.setField(service, "reminderDays", 7);
+        ReflectionTestUtils.setField(service, "defaultLoanDays", 4);
+    }
+
+    @Test
+    @DisplayName("Should send one digest per customer from the watermark and advance it")
+    void notifyFromWatermarkTest(){
+        LocalDate today = LocalDate.now();
+        LocalDate watermark = today.minusDays(1);
+
+        when(watermarkRepository.findById("send-late-loan-emails"))
+                .thenReturn(Optional.of(new JobWatermark("send-late-loan-emails", watermark, Instant.now())));
+        Customer fulano = new Customer(1l, "Fulano", "fulano@email.com");
+        Customer ciclano = new Customer(2l, "Ciclano", "ciclano@email.com");
+        when(loanService.getLoansToNotify(watermark, today, 7)).thenReturn(Arrays.asList(
+                createLateLoan(1l, fulano, "Livro A"),
+                createLateLoan(2l, ciclano, "Livro B"),
+                createLateLoan(3l, fulano, "Livro C")));
+
+        service.notifyLateLoans();
+
+        verify(emailService).sendMail("Fulano (2):\n- Livro A\n- Livro C\n", "fulano@email.com");
+        verify(emailService).sendMail("Ciclano (1):\n- Livro B\n", "ciclano@email.com");
+        verify(emailService, never()).sendMails(any(), any());
+        verify(loanService).markNotified(Arrays.asList(1l, 3l, 2l), today);
+        verify(watermarkRepository).save(argThat(saved -> today.equals(saved.getWatermark())));
+    }
+
+    @Test
+    @DisplayName("Should keep loans of a failed digest in the next run's window")
+    void failedDigestTest(){
+        LocalDate today = LocalDate.now();
+        Loan loan = createLateLoan(1l, new Customer(1l, "Fulano", "fulano@email.com"), "Livro A");
+
+        when(watermarkRepository.findById("send-late-loan-emails")).thenReturn(Optional.empty());
+        when(loanService.getLoansToNotify(any(), any(), anyInt())).thenReturn(Arrays.asList(loan));
+        doThrow(new MailSendException("unavailable")).when(emailService).sendMail(any(), any());
+
+        service.notifyLateLoans();
+
+        verify(loanService).markNotified(Collections.emptyList(), today);
+        verify(watermarkRepository).save(argThat(saved -> loan.getDueDate().equals(saved.getWatermark())));
+    }
+
+    @Test
+    @DisplayName("Should keep a failed loan without a due date in the window by its default due date")
+    void failedDigestWithoutDueDateTest(){
+        LocalDate today = LocalDate.now();
+        Loan legacy = createLateLoan(1l, new Customer(1l, "Fulano", "fulano@email.com"), "Livro A");
+        legacy.setDueDate(null);
+        Loan sent = createLateLoan(2l, new Customer(2l, "Ciclano", "ciclano@email.com"), "Livro B");
+
+        when(watermarkRepository.findById("send-late-loan-emails")).thenReturn(Optional.empty());
+        when(loanService.getLoansToNotify(any(), any(), anyInt())).thenReturn(Arrays.asList(legacy, sent));
+        doThrow(new MailSendException("unavailable")).when(emailService).sendMail(any(), eq("fulano@email.com"));
+
+        service.notifyLateLoans();
+
+        verify(loanService).markNotified(Collections.singletonList(2l), today);
+        verify(watermarkRepository).save(argThat(saved -> legacy.getLoanDate().plusDays(4).equals(saved.getWatermark())));
+    }
+
+    @Test
+    @DisplayName("Should not send mails when there is nothing to notify")
+    void nothingToNotifyTest(){
+        when(watermarkRepository.findById("send-late-loan-emails")).thenReturn(Optional.empty());
+        when(loanService.getLoansToNotify(any(), any(), anyInt())).thenReturn(Collections.emptyList());
+
+        service.notifyLateLoans();
+
+        verify(emailService, never()).sendMail(any(), any());
+        verify(watermarkRepository).save(any(JobWatermark.class));
+    }
+
+    private Loan createLateLoan(Long id, Customer customer, String title){
+        return Loan.builder()
+                .id(id)
+                .customer(customer)
+                .book(Book.builder().title(title).build())
+                .loanDate(LocalDate.now().minusDays(10))
+                .dueDate(LocalDate.now().minusDays(6))
+                .build();
+    }
+}
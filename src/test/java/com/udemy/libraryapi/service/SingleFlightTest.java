@@ -0,0 +1,94 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("Should run a single lookup for concurrent calls with the same key")
+    void coalesceTest() throws Exception {
+        Counter coalesced = new SimpleMeterRegistry().counter("coalesced");
+        SingleFlight<Long, String> flight = new SingleFlight<>(coalesced);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute(1l, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "book";
+        }));
+        while (loads.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.execute(1l, () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        while (coalesced.count() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        BDDAssertions.assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("book");
+        BDDAssertions.assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("book");
+        BDDAssertions.assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should hand each follower its own copy of the leader's result")
+    void shareTest() throws Exception {
+        Counter coalesced = new SimpleMeterRegistry().counter("coalesced");
+        SingleFlight<Long, StringBuilder> flight = new SingleFlight<>(coalesced, StringBuilder::new);
+        StringBuilder loaded = new StringBuilder("book");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<StringBuilder> leader = CompletableFuture.supplyAsync(() -> flight.execute(1l, () -> {
+            loading.countDown();
+            await(release);
+            return loaded;
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<StringBuilder> follower = CompletableFuture.supplyAsync(
+                () -> flight.execute(1l, () -> new StringBuilder("other")));
+        while (coalesced.count() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        BDDAssertions.assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(loaded);
+        BDDAssertions.assertThat(follower.get(5, TimeUnit.SECONDS)).isNotSameAs(loaded).hasToString("book");
+    }
+
+    @Test
+    @DisplayName("Should run a new lookup once the previous one finished")
+    void sequentialTest(){
+        SingleFlight<Long, String> flight = new SingleFlight<>(new SimpleMeterRegistry().counter("coalesced"));
+        AtomicInteger loads = new AtomicInteger();
+
+        flight.execute(1l, () -> "book" + loads.incrementAndGet());
+        String second = flight.execute(1l, () -> "book" + loads.incrementAndGet());
+
+        BDDAssertions.assertThat(second).isEqualTo("book2");
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
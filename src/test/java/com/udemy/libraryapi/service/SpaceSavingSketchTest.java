@@ -0,0 +1,65 @@
+package com.udemy.libraryapi.service;
+
+import com.udemy.libraryapi.service.impl.SpaceSavingSketch;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    @DisplayName("Should keep the heavy hitters when there are more items than counters")
+    void heavyHittersTest(){
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        for (int i = 0; i < 100; i++) {
+            sketch.add(1l);
+            sketch.add(1l);
+            sketch.add(1l);
+            sketch.add(2l);
+            sketch.add(2l);
+            sketch.add(100 + i);
+        }
+
+        List<Long> top = items(sketch.top(2));
+
+        BDDAssertions.assertThat(top).containsExactly(1l, 2l);
+    }
+
+    @Test
+    @DisplayName("Should sum the counters of merged sketches")
+    void mergeTest(){
+        SpaceSavingSketch monday = new SpaceSavingSketch(10);
+        monday.add(1l);
+        monday.add(2l);
+        SpaceSavingSketch tuesday = new SpaceSavingSketch(10);
+        tuesday.add(2l);
+        tuesday.add(2l);
+
+        List<SpaceSavingSketch.Counter> top = SpaceSavingSketch.merge(10, Arrays.asList(monday, tuesday)).top(10);
+
+        BDDAssertions.assertThat(items(top)).containsExactly(2l, 1l);
+        BDDAssertions.assertThat(top.get(0).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should restore the same counters from the encoded form")
+    void encodeDecodeTest(){
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.add(7l);
+        sketch.add(7l);
+        sketch.add(8l);
+
+        SpaceSavingSketch restored = SpaceSavingSketch.decode(10, sketch.encode());
+
+        BDDAssertions.assertThat(items(restored.top(10))).containsExactly(7l, 8l);
+        BDDAssertions.assertThat(restored.top(1).get(0).getCount()).isEqualTo(2);
+    }
+
+    private List<Long> items(List<SpaceSavingSketch.Counter> counters){
+        return counters.stream().map(SpaceSavingSketch.Counter::getItem).collect(Collectors.toList());
+    }
+}